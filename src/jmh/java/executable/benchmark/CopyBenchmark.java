@@ -0,0 +1,78 @@
+package executable.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast streams are copied to files, as when the WAR cannot be read directly.
+ *
+ * <p>
+ * The score is in operations per second; multiply it by {@link #size} for the throughput in bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyBenchmark {
+
+    /**
+     * Size of the stream, in bytes.
+     */
+    @Param({"65536", "1048576", "33554432"})
+    public int size;
+
+    private File dir;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void createContent() throws Exception {
+        dir = Files.createTempDirectory("copy-benchmark").toFile();
+        content = new byte[size];
+        new Random(size).nextBytes(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws Throwable {
+        Launcher.deleteTree(dir.toPath(), 0);
+    }
+
+    /**
+     * {@code Main.copyStream}, the stream copy {@code extractFromJar} falls back to.
+     */
+    @Benchmark
+    public long copyStream() throws Throwable {
+        File target = new File(dir, "copyStream.tmp");
+        try (OutputStream os = new FileOutputStream(target)) {
+            Launcher.copyStream(new ByteArrayInputStream(content), os);
+        }
+        return target.length();
+    }
+
+    /**
+     * {@code ResourceExtractor.copy}, the channel based stream copy used by {@code whoAmI}.
+     */
+    @Benchmark
+    public long copy() throws Throwable {
+        return Launcher.copy(new ByteArrayInputStream(content), new File(dir, "copy.tmp"));
+    }
+}
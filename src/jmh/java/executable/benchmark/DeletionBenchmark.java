@@ -0,0 +1,116 @@
+package executable.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long deleting the temporary files of a previous run takes.
+ *
+ * <p>
+ * The synthetic tree has {@link #fanOut} directories per level on {@link #depth} levels, and
+ * {@link #fanOut} small files in each directory of the last level, like the class and JSP
+ * caches Winstone leaves behind. A fresh tree is created before each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+// measure the janitor at full speed
+@Fork(value = 1, jvmArgsAppend = "-DexecutableWar.janitor.maxDeletesPerSecond=0")
+public class DeletionBenchmark {
+
+    /**
+     * Number of entries per directory.
+     */
+    @Param({"4", "16", "64"})
+    public int fanOut;
+
+    /**
+     * Number of directory levels.
+     */
+    @Param({"2"})
+    public int depth;
+
+    private File dir;
+    private File tree;
+
+    @Setup(Level.Trial)
+    public void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("deletion-benchmark").toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDirectory() throws Throwable {
+        Launcher.deleteTree(dir.toPath(), 0);
+    }
+
+    @Setup(Level.Invocation)
+    public void createTree() throws IOException {
+        tree = new File(dir, "jenkins.war");
+        createTree(tree.toPath(), depth);
+    }
+
+    private void createTree(Path parent, int levels) throws IOException {
+        Files.createDirectories(parent);
+        for (int i = 0; i < fanOut; i++) {
+            if (levels > 0) {
+                createTree(parent.resolve("d" + i), levels - 1);
+            } else {
+                Files.write(parent.resolve("f" + i + ".class"), new byte[512]);
+            }
+        }
+    }
+
+    /**
+     * {@code Main.deleteWinstoneTempContents} until the janitor deleted the tree in the background.
+     */
+    @Benchmark
+    public void deleteWinstoneTempContents() throws Throwable {
+        Launcher.deleteWinstoneTempContents(tree);
+        if (!Launcher.awaitJanitorIdle(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("The janitor did not delete " + tree + " in time");
+        }
+    }
+
+    /**
+     * {@code Main.deleteWinstoneTempContents} returning once the tree is renamed into a tombstone,
+     * which is all that startup waits for.
+     */
+    @Benchmark
+    public void renameToTombstone() throws Throwable {
+        Launcher.deleteWinstoneTempContents(tree);
+    }
+
+    /**
+     * Lets the janitor delete the tombstone of {@link #renameToTombstone()} outside of the measurement.
+     */
+    @TearDown(Level.Invocation)
+    public void awaitJanitor() throws Throwable {
+        Launcher.awaitJanitorIdle(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * {@code Janitor.deleteTree} without throttling, which is the work done in the background.
+     */
+    @Benchmark
+    public long deleteTree() throws Throwable {
+        return Launcher.deleteTree(tree.toPath(), 0);
+    }
+}
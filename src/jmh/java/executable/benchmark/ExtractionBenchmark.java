@@ -0,0 +1,98 @@
+package executable.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast resources are extracted from the WAR.
+ *
+ * <p>
+ * The score is in operations per second; multiply it by {@link #size} for the throughput in bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    /**
+     * Size of the resource, in bytes.
+     */
+    @Param({"65536", "1048576", "33554432"})
+    public int size;
+
+    /**
+     * Whether the resource is stored or deflated in the WAR.
+     */
+    @Param({"stored", "deflated"})
+    public String method;
+
+    private File dir;
+    private Closeable war;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void createWar() throws Throwable {
+        dir = Files.createTempDirectory("extraction-benchmark").toFile();
+        File file = new File(dir, "jenkins.war");
+        content = new byte[size];
+        // half random, half repetitive, so that deflating has some work to do
+        new Random(size).nextBytes(content);
+        for (int i = size / 2; i < size; i++) {
+            content[i] = (byte) ('a' + i % 7);
+        }
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file))) {
+            ZipEntry entry = new ZipEntry("winstone.jar");
+            if (method.equals("stored")) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCrc(crc.getValue());
+            }
+            zos.putNextEntry(entry);
+            zos.write(content);
+            zos.closeEntry();
+        }
+        war = Launcher.openZipIndex(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWar() throws Throwable {
+        war.close();
+        Launcher.deleteTree(dir.toPath(), 0);
+    }
+
+    /**
+     * {@code Main.extractFromJar} as used for {@code winstone.jar} on every start.
+     */
+    @Benchmark
+    public long extractFromJar() throws Throwable {
+        File extracted = Launcher.extractFromJar(war, "winstone.jar", "winstone", ".jar", dir);
+        long length = extracted.length();
+        Files.delete(extracted.toPath());
+        return length;
+    }
+}
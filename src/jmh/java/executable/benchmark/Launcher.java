@@ -0,0 +1,134 @@
+package executable.benchmark;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives the benchmarks access to the launcher's internals.
+ *
+ * <p>
+ * JMH does not support benchmarks in the root package, and classes in the root package cannot be
+ * referenced from any other package, so everything goes through reflection.
+ * The method handles are constants, so that the JIT compiles the calls like direct ones.
+ */
+final class Launcher {
+
+    private static final MethodHandle OPEN_ZIP_INDEX = method("ZipIndex", "open",
+            Closeable.class, File.class);
+    private static final MethodHandle EXTRACT_FROM_JAR = method("Main", "extractFromJar",
+            File.class, Closeable.class, String.class, String.class, String.class, File.class);
+    private static final MethodHandle COPY_STREAM = method("Main", "copyStream",
+            void.class, InputStream.class, OutputStream.class);
+    private static final MethodHandle DELETE_WINSTONE_TEMP_CONTENTS = method("Main", "deleteWinstoneTempContents",
+            void.class, File.class);
+    private static final MethodHandle COPY = method("ResourceExtractor", "copy",
+            long.class, InputStream.class, File.class);
+    private static final MethodHandle DELETE_TREE = method("Janitor", "deleteTree",
+            long.class, Path.class, int.class);
+    private static final MethodHandle AWAIT_JANITOR_IDLE = method("Janitor", "awaitIdle",
+            boolean.class, long.class, TimeUnit.class);
+    private static final MethodHandle NEW_LOG_FILE_OUTPUT_STREAM = constructor("LogFileOutputStream", File.class);
+    private static final MethodHandle REOPEN = method("LogFileOutputStream", "reopen",
+            void.class);
+
+    private Launcher() {}
+
+    /**
+     * Indexes a WAR, as the launcher does once on startup.
+     */
+    static Closeable openZipIndex(File war) throws Throwable {
+        return (Closeable) OPEN_ZIP_INDEX.invokeExact(war);
+    }
+
+    static File extractFromJar(Closeable war, String resource, String fileName, String suffix, File directory) throws Throwable {
+        return (File) EXTRACT_FROM_JAR.invokeExact(war, resource, fileName, suffix, directory);
+    }
+
+    static void copyStream(InputStream in, OutputStream out) throws Throwable {
+        COPY_STREAM.invokeExact(in, out);
+    }
+
+    static void deleteWinstoneTempContents(File file) throws Throwable {
+        DELETE_WINSTONE_TEMP_CONTENTS.invokeExact(file);
+    }
+
+    static long copy(InputStream in, File target) throws Throwable {
+        return (long) COPY.invokeExact(in, target);
+    }
+
+    static long deleteTree(Path root, int maxDeletesPerSecond) throws Throwable {
+        return (long) DELETE_TREE.invokeExact(root, maxDeletesPerSecond);
+    }
+
+    /**
+     * Waits until the janitor deleted the tombstones scheduled so far.
+     */
+    static boolean awaitJanitorIdle(long timeout, TimeUnit unit) throws Throwable {
+        return (boolean) AWAIT_JANITOR_IDLE.invokeExact(timeout, unit);
+    }
+
+    static OutputStream newLogFileOutputStream(File file) throws Throwable {
+        return (OutputStream) NEW_LOG_FILE_OUTPUT_STREAM.invokeExact(file);
+    }
+
+    static void reopen(OutputStream logFileOutputStream) throws Throwable {
+        REOPEN.invokeExact(logFileOutputStream);
+    }
+
+    /**
+     * Finds a method and adapts it to the given types, which may be supertypes of the actual ones
+     * when these cannot be referenced.
+     */
+    private static MethodHandle method(String className, String name, Class<?> returnType, Class<?>... parameterTypes) {
+        try {
+            Method m = find(Class.forName(className), name, parameterTypes);
+            m.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(m);
+            MethodType type = MethodType.methodType(returnType, parameterTypes);
+            if (!Modifier.isStatic(m.getModifiers())) {
+                // the only instance methods used are those of LogFileOutputStream
+                type = type.insertParameterTypes(0, OutputStream.class);
+            }
+            return handle.asType(type);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static Method find(Class<?> c, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        search:
+        for (Method m : c.getDeclaredMethods()) {
+            if (!m.getName().equals(name) || m.getParameterCount() != parameterTypes.length) {
+                continue;
+            }
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (!parameterTypes[i].isAssignableFrom(m.getParameterTypes()[i])) {
+                    continue search;
+                }
+            }
+            return m;
+        }
+        throw new NoSuchMethodException(c.getName() + "." + name);
+    }
+
+    private static MethodHandle constructor(String className, Class<?>... parameterTypes) {
+        try {
+            Constructor<?> c = Class.forName(className).getDeclaredConstructor(parameterTypes);
+            c.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(c)
+                    .asType(MethodType.methodType(OutputStream.class, parameterTypes));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package executable.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput and the latency percentiles of writing log lines to {@code LogFileOutputStream}
+ * from one or more threads, and while the log file is being reopened as on {@code SIGALRM}.
+ *
+ * <p>
+ * Use {@code -t} to try other numbers of threads with {@link #write()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFileOutputStreamBenchmark {
+
+    /**
+     * Length of a log line, in bytes.
+     */
+    @Param({"80", "1024"})
+    public int lineLength;
+
+    private File dir;
+    private OutputStream out;
+    private byte[] line;
+
+    @Setup(Level.Trial)
+    public void open() throws Throwable {
+        dir = Files.createTempDirectory("log-benchmark").toFile();
+        out = Launcher.newLogFileOutputStream(new File(dir, "jenkins.log"));
+        line = new byte[lineLength];
+        Arrays.fill(line, (byte) 'x');
+        line[lineLength - 1] = '\n';
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Throwable {
+        out.close();
+        Launcher.deleteTree(dir.toPath(), 0);
+    }
+
+    /**
+     * Keeps the log file from growing without bounds, as logrotate would.
+     */
+    @TearDown(Level.Iteration)
+    public void truncate() throws IOException {
+        Files.write(new File(dir, "jenkins.log").toPath(), "".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        out.write(line);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void write4Threads() throws IOException {
+        out.write(line);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void write16Threads() throws IOException {
+        out.write(line);
+    }
+
+    @Benchmark
+    @Group("reopen")
+    @GroupThreads(4)
+    public void writeWhileReopening() throws IOException {
+        out.write(line);
+    }
+
+    /**
+     * Reopens the log file a hundred times per second, far more often than any rotation would.
+     */
+    @Benchmark
+    @Group("reopen")
+    @GroupThreads(1)
+    public void reopen() throws Throwable {
+        Launcher.reopen(out);
+        TimeUnit.MILLISECONDS.sleep(10);
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link OutputStream} that queues the bytes in a bounded ring buffer and writes them to another
+ * stream on a background thread, so that writers do not wait for the disk nor for each other.
+ *
+ * <p>
+ * The buffer is allocated once and divided in cells of {@value #CELL_SIZE} bytes. A write claims as
+ * many consecutive cells as it needs with a compare-and-set, copies its bytes and publishes each cell
+ * by bumping its sequence number, as in Dmitry Vyukov's bounded queue. So writers only contend on
+ * one counter, and the bytes of a write stay together. The writer thread copies the published cells
+ * to a batch and writes each batch with a single call.
+ *
+ * <p>
+ * When the buffer is full, writers apply the {@link BackPressure}. {@link #flush()} writes all the
+ * bytes written so far before flushing the target, on the calling thread, and so does a shutdown hook,
+ * after which writes go straight to the target so that nothing written during the shutdown is lost.
+ */
+final class AsyncLogWriter extends OutputStream {
+
+    /**
+     * What a write does when the buffer is full.
+     */
+    enum BackPressure {
+        /**
+         * Wait for the writer thread to make room.
+         */
+        BLOCK,
+        /**
+         * Discard the bytes. The writer thread notes in the log how many writes were discarded.
+         */
+        DROP,
+        /**
+         * Write the queued bytes and then these ones to the target on the calling thread.
+         */
+        SPILL
+    }
+
+    static final int CELL_SIZE = 512;
+
+    private static final int BATCH_SIZE = 256 * 1024;
+
+    /**
+     * How long the writer thread waits for bytes before looking again, in case a wakeup was missed.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * How long a blocked write waits before looking for room again.
+     */
+    private static final long BLOCKED_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final OutputStream target;
+    private final BackPressure backPressure;
+
+    /**
+     * The cells, one after the other.
+     */
+    private final byte[] data;
+
+    /**
+     * How many bytes each cell holds.
+     */
+    private final int[] lengths;
+
+    /**
+     * The sequence number of each cell. The cell at position {@code p} is free when its sequence
+     * number is {@code p}, and holds bytes when it is {@code p + 1}.
+     */
+    private final AtomicLongArray sequences;
+
+    private final int capacity;
+
+    /**
+     * The largest write that fits in the buffer at once. Longer ones are queued in several pieces.
+     */
+    private final int maxWrite;
+
+    /**
+     * The next position to claim.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position to write. Only changed with {@link #drainLock} held.
+     */
+    private volatile long head;
+
+    /**
+     * Held by whoever copies cells to {@link #batch} and writes it to the target.
+     */
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    private final byte[] batch;
+
+    private final Thread writer;
+
+    private final Thread shutdownHook;
+
+    private volatile boolean idle;
+
+    /**
+     * Set once the buffer is drained for the last time, from then on writes go straight to the target.
+     */
+    private volatile boolean synchronous;
+
+    private volatile boolean closed;
+
+    /**
+     * The last failure of the writer thread, thrown by the next {@link #flush()}.
+     */
+    private volatile IOException failure;
+
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicLong spilledWrites = new AtomicLong();
+
+    /**
+     * How many dropped writes were already noted in the log. Only used with {@link #drainLock} held.
+     */
+    private long reportedDroppedWrites;
+
+    /**
+     * @param bufferSize the size of the buffer, rounded up to a power of two number of cells
+     * @param name the name of the writer thread
+     */
+    AsyncLogWriter(OutputStream target, int bufferSize, BackPressure backPressure, String name) {
+        this.target = target;
+        this.backPressure = backPressure;
+        int cells = Math.max(2, bufferSize / CELL_SIZE);
+        capacity = Integer.highestOneBit(cells - 1) << 1;
+        data = new byte[capacity * CELL_SIZE];
+        lengths = new int[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        maxWrite = capacity / 2 * CELL_SIZE;
+        batch = new byte[Math.min(data.length, BATCH_SIZE)];
+
+        writer = new Thread(this::run, name);
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread(this::drainForShutdown, name + " shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (synchronous) {
+            writeThrough(b, off, len);
+            return;
+        }
+        while (len > 0) {
+            int n = Math.min(len, maxWrite);
+            offer(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void offer(byte[] b, int off, int len) throws IOException {
+        int cells = (len + CELL_SIZE - 1) / CELL_SIZE;
+        long pos;
+        while (true) {
+            pos = tail.get();
+            long last = pos + cells - 1;
+            long sequence = sequences.get(index(last));
+            if (sequence == last) {
+                // the cells are freed in order, so all the cells before the last one are free too
+                if (tail.compareAndSet(pos, pos + cells)) {
+                    break;
+                }
+            } else if (sequence < last) {
+                // still holds bytes of the previous round, the buffer is full
+                if (!waitForRoom(b, off, len)) {
+                    return;
+                }
+            }
+            // else another write claimed these cells first
+        }
+        for (int i = 0; i < cells; i++) {
+            int index = index(pos + i);
+            int n = Math.min(CELL_SIZE, len - i * CELL_SIZE);
+            System.arraycopy(b, off + i * CELL_SIZE, data, index * CELL_SIZE, n);
+            lengths[index] = n;
+            sequences.set(index, pos + i + 1);
+        }
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Applies the back-pressure.
+     *
+     * @return true to try again, false if the bytes were dealt with
+     */
+    private boolean waitForRoom(byte[] b, int off, int len) throws IOException {
+        switch (backPressure) {
+            case DROP:
+                droppedWrites.incrementAndGet();
+                droppedBytes.addAndGet(len);
+                LockSupport.unpark(writer);
+                return false;
+            case SPILL:
+                spilledWrites.incrementAndGet();
+                writeThrough(b, off, len);
+                return false;
+            default:
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(this, BLOCKED_NANOS);
+                return true;
+        }
+    }
+
+    /**
+     * Writes the queued bytes and then the given ones on the calling thread.
+     */
+    private void writeThrough(byte[] b, int off, int len) throws IOException {
+        drainLock.lock();
+        try {
+            drain();
+            target.write(b, off, len);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private int index(long position) {
+        return (int) position & (capacity - 1);
+    }
+
+    private boolean isPublished(long position) {
+        return sequences.get(index(position)) == position + 1;
+    }
+
+    /**
+     * Writes the bytes of the published cells to the target, in batches.
+     *
+     * @return the number of bytes written
+     */
+    private long drain() throws IOException {
+        long written = 0;
+        while (true) {
+            int n = 0;
+            long position = head;
+            while (n + CELL_SIZE <= batch.length && isPublished(position)) {
+                int index = index(position);
+                int length = lengths[index];
+                System.arraycopy(data, index * CELL_SIZE, batch, n, length);
+                n += length;
+                // free the cell for the next round
+                sequences.set(index, position + capacity);
+                position++;
+            }
+            head = position;
+            if (n == 0) {
+                break;
+            }
+            target.write(batch, 0, n);
+            written += n;
+        }
+        long dropped = droppedWrites.get();
+        if (dropped != reportedDroppedWrites) {
+            byte[] note = String.format("[%d writes dropped, the log file buffer was full]%n",
+                    dropped - reportedDroppedWrites).getBytes(StandardCharsets.US_ASCII);
+            reportedDroppedWrites = dropped;
+            target.write(note);
+        }
+        return written;
+    }
+
+    /**
+     * Writes all the bytes written so far, while holding {@link #drainLock}.
+     */
+    private void drainAll() throws IOException {
+        long end = tail.get();
+        drain();
+        while (head < end) {
+            // a write claimed cells but has not published them yet
+            Thread.yield();
+            drain();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            long written;
+            drainLock.lock();
+            try {
+                written = drain();
+            } catch (IOException e) {
+                failure = e;
+                written = 0;
+            } finally {
+                drainLock.unlock();
+            }
+            if (written == 0) {
+                idle = true;
+                if (!isPublished(head) && !closed) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                idle = false;
+            }
+        }
+    }
+
+    private void drainForShutdown() {
+        drainLock.lock();
+        try {
+            synchronous = true;
+            drainAll();
+            target.flush();
+        } catch (IOException e) {
+            // nowhere left to report it
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Writes all the bytes written so far, and flushes the target.
+     */
+    @Override
+    public void flush() throws IOException {
+        drainLock.lock();
+        try {
+            drainAll();
+            target.flush();
+        } finally {
+            drainLock.unlock();
+        }
+        IOException e = failure;
+        if (e != null) {
+            failure = null;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            LockSupport.unpark(writer);
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+            target.close();
+        }
+    }
+
+    /**
+     * Number of writes discarded because the buffer was full.
+     */
+    long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    /**
+     * Number of bytes discarded because the buffer was full.
+     */
+    long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    /**
+     * Number of writes made on the calling thread because the buffer was full.
+     */
+    long getSpilledWrites() {
+        return spilledWrites.get();
+    }
+
+    /**
+     * Number of cells queued and not written yet.
+     */
+    long getQueuedCells() {
+        return tail.get() - head;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CPU and memory limits of the control group of this process, as set by container runtimes.
+ *
+ * <p>
+ * Both cgroup v2, with a single hierarchy where the limits of the parent groups also apply, and
+ * cgroup v1, with a hierarchy per controller, are read. A container usually sees its own group at
+ * the root of the mount, so the mount itself is read when the path of the group is not there.
+ */
+final class CgroupLimits {
+
+    /**
+     * Value of a limit that is not set.
+     */
+    static final long UNLIMITED = -1;
+
+    /**
+     * cgroup v1 reports no memory limit as the largest multiple of the page size, or close to it.
+     */
+    private static final long V1_UNLIMITED_MEMORY = 1L << 62;
+
+    private final long memory;
+    private final long cpuQuota;
+    private final long cpuPeriod;
+
+    private CgroupLimits(long memory, long cpuQuota, long cpuPeriod) {
+        this.memory = memory;
+        this.cpuQuota = cpuQuota;
+        this.cpuPeriod = cpuPeriod;
+    }
+
+    /**
+     * The limits of this process, all {@link #UNLIMITED} when not on Linux.
+     */
+    static CgroupLimits detect() {
+        return read(new File("/sys/fs/cgroup"), new File("/proc/self/cgroup"));
+    }
+
+    /**
+     * @param mount where the cgroup file system is mounted
+     * @param self the {@code /proc/self/cgroup} file, with the group of the process in each hierarchy
+     */
+    static CgroupLimits read(@NonNull File mount, @NonNull File self) {
+        Map<String, String> paths = new HashMap<>();
+        List<String> lines = readLines(self);
+        if (lines != null) {
+            for (String line : lines) {
+                // hierarchy-ID:controller-list:cgroup-path, with an empty list for v2
+                String[] fields = line.split(":", 3);
+                if (fields.length == 3) {
+                    for (String controller : fields[1].split(",")) {
+                        paths.put(controller, fields[2]);
+                    }
+                }
+            }
+        }
+        if (new File(mount, "cgroup.controllers").isFile()) {
+            return readV2(mount, paths.get(""));
+        }
+        return readV1(mount, paths);
+    }
+
+    private static CgroupLimits readV2(File mount, @CheckForNull String path) {
+        long memory = UNLIMITED;
+        long cpuQuota = UNLIMITED;
+        long cpuPeriod = UNLIMITED;
+        // the lowest limit on the way up to the root applies
+        for (File dir = group(mount, path); dir != null; dir = dir.equals(mount) ? null : dir.getParentFile()) {
+            memory = lowest(memory, parseLimit(readFirstLine(new File(dir, "memory.max"))));
+            String cpu = readFirstLine(new File(dir, "cpu.max"));
+            if (cpu != null) {
+                // quota and period, like "max 100000" or "150000 100000"
+                String[] fields = cpu.trim().split("\\s+");
+                long quota = parseLimit(fields[0]);
+                long period = fields.length > 1 ? parseLimit(fields[1]) : UNLIMITED;
+                if (quota > 0 && period > 0 && (cpuQuota == UNLIMITED || (double) quota / period < (double) cpuQuota / cpuPeriod)) {
+                    cpuQuota = quota;
+                    cpuPeriod = period;
+                }
+            }
+        }
+        return new CgroupLimits(memory, cpuQuota, cpuPeriod);
+    }
+
+    private static CgroupLimits readV1(File mount, Map<String, String> paths) {
+        long memory = parseLimit(readFirstLine(controllerFile(mount, "memory", paths, "memory.limit_in_bytes")));
+        if (memory >= V1_UNLIMITED_MEMORY) {
+            memory = UNLIMITED;
+        }
+        long cpuQuota = parseLimit(readFirstLine(controllerFile(mount, "cpu", paths, "cpu.cfs_quota_us")));
+        long cpuPeriod = parseLimit(readFirstLine(controllerFile(mount, "cpu", paths, "cpu.cfs_period_us")));
+        if (cpuQuota <= 0 || cpuPeriod <= 0) {
+            cpuQuota = UNLIMITED;
+            cpuPeriod = UNLIMITED;
+        }
+        return new CgroupLimits(memory, cpuQuota, cpuPeriod);
+    }
+
+    /**
+     * Finds a file of a v1 controller, mounted on its own or together with others.
+     */
+    private static File controllerFile(File mount, String controller, Map<String, String> paths, String name) {
+        File[] candidates = mount.listFiles((dir, n) -> Arrays.asList(n.split(",")).contains(controller));
+        if (candidates == null || candidates.length == 0) {
+            return new File(new File(mount, controller), name);
+        }
+        return new File(group(candidates[0], paths.get(controller)), name);
+    }
+
+    /**
+     * The directory of the group, or the mount when the group is not visible there.
+     */
+    private static File group(File mount, @CheckForNull String path) {
+        if (path != null && !path.equals("/")) {
+            File dir = new File(mount, path);
+            if (dir.isDirectory()) {
+                return dir;
+            }
+        }
+        return mount;
+    }
+
+    /**
+     * The memory limit in bytes, or {@link #UNLIMITED}.
+     */
+    long memory() {
+        return memory;
+    }
+
+    /**
+     * The number of CPUs the quota amounts to, possibly a fraction, or {@link #UNLIMITED}.
+     */
+    double cpus() {
+        return cpuQuota == UNLIMITED ? UNLIMITED : (double) cpuQuota / cpuPeriod;
+    }
+
+    @Override
+    public String toString() {
+        return "memory=" + (memory == UNLIMITED ? "unlimited" : memory / (1024 * 1024) + "m")
+                + ", cpus=" + (cpuQuota == UNLIMITED ? "unlimited" : String.format("%.2f", cpus()));
+    }
+
+    private static long lowest(long a, long b) {
+        return a == UNLIMITED ? b : b == UNLIMITED ? a : Math.min(a, b);
+    }
+
+    private static long parseLimit(@CheckForNull String value) {
+        if (value == null || value.trim().equals("max")) {
+            return UNLIMITED;
+        }
+        try {
+            long limit = Long.parseLong(value.trim());
+            return limit < 0 ? UNLIMITED : limit;
+        } catch (NumberFormatException e) {
+            return UNLIMITED;
+        }
+    }
+
+    @CheckForNull
+    private static String readFirstLine(File file) {
+        List<String> lines = readLines(file);
+        return lines == null || lines.isEmpty() ? null : lines.get(0);
+    }
+
+    @CheckForNull
+    private static List<String> readLines(File file) {
+        try {
+            return Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            // not on Linux, or not limited by this controller
+            return null;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import sun.misc.Signal;
+
+/**
+ * Runs the launcher again in a child JVM with additional JVM options, for the features that
+ * can only be set up when the JVM starts.
+ *
+ * <p>
+ * The child gets the same JVM options and class path as this JVM, inherits its standard
+ * output and error, and is stopped when this JVM is. The parent only waits for it, and passes on
+ * the signals that do not stop it.
+ */
+final class ChildJvm {
+
+    private static final Logger LOGGER = Logger.getLogger(ChildJvm.class.getName());
+
+    /**
+     * System property set in the child, so that it does not relaunch itself again.
+     */
+    private static final String CHILD_PROPERTY = "executableWar.child";
+
+    /**
+     * Prefixes of the JVM options that must not be passed on to the child.
+     */
+    private static final List<String> NOT_INHERITED = Arrays.asList(
+            "-agentlib:jdwp", // the debugger port is taken by the parent
+            "-XX:ArchiveClassesAtExit", "-XX:SharedArchiveFile", "-Xshare",
+            "-D" + CHILD_PROPERTY);
+
+    /**
+     * Signals passed on to the child, like SIGALRM to reopen the log file.
+     * SIGTERM, SIGINT and SIGHUP shut this JVM down, which stops the child, and SIGQUIT is taken by the JVM.
+     */
+    private static final List<String> FORWARDED_SIGNALS = Collections.singletonList("ALRM");
+
+    private final List<String> jvmOptions = new ArrayList<>();
+
+    /**
+     * Run once the child exited, or {@code null} once it ran.
+     */
+    @CheckForNull
+    private Runnable onExit;
+
+    ChildJvm() {
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (NOT_INHERITED.stream().noneMatch(option::startsWith)) {
+                jvmOptions.add(option);
+            }
+        }
+    }
+
+    /**
+     * Whether this JVM was started by a {@link ChildJvm}.
+     */
+    static boolean isChild() {
+        return Boolean.getBoolean(CHILD_PROPERTY);
+    }
+
+    /**
+     * The JVM options of the child so far.
+     */
+    List<String> jvmOptions() {
+        return Collections.unmodifiableList(jvmOptions);
+    }
+
+    /**
+     * Adds a JVM option for the child.
+     */
+    ChildJvm jvmOption(@NonNull String option) {
+        jvmOptions.add(option);
+        return this;
+    }
+
+    /**
+     * Sets what to do once the child exited, before this JVM goes on or, when it is shut down, before it halts.
+     */
+    ChildJvm onExit(@NonNull Runnable action) {
+        onExit = action;
+        return this;
+    }
+
+    /**
+     * The command line that runs {@code Main} in the child.
+     */
+    List<String> command(@NonNull List<String> args) {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(jvmOptions);
+        command.add("-D" + CHILD_PROPERTY + "=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Main");
+        command.addAll(args);
+        return command;
+    }
+
+    /**
+     * Runs {@code Main} in the child and waits for it to exit.
+     *
+     * @param args the arguments of the child
+     * @param stdin text to send to the standard input of the child, for {@code --paramsFromStdIn}, or
+     *              {@code null} for the child to inherit the standard input
+     * @return the exit status of the child
+     */
+    @SuppressFBWarnings(value = {"COMMAND_INJECTION", "DM_DEFAULT_ENCODING"}, justification = "Runs the same program again, --paramsFromStdIn relies on the default encoding")
+    int run(@NonNull List<String> args, @CheckForNull String stdin) throws IOException, InterruptedException {
+        List<String> command = command(args);
+        LOGGER.log(Level.FINE, "Starting {0}", command);
+
+        ProcessBuilder pb = new ProcessBuilder(command).inheritIO();
+        if (stdin != null) {
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+        }
+        Process process = pb.start();
+        forwardSignals(process);
+        Thread stopper = new Thread(() -> {
+            process.destroy();
+            try {
+                process.waitFor();
+                exited();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "Stopping the child JVM");
+        Runtime.getRuntime().addShutdownHook(stopper);
+        if (stdin != null) {
+            // the child only reads what is available when it gets to it, which is well after
+            // this is written since it has to start a JVM first
+            try (OutputStream os = process.getOutputStream()) {
+                os.write(stdin.getBytes(Charset.defaultCharset()));
+            }
+        }
+        try {
+            int status = process.waitFor();
+            exited();
+            return status;
+        } finally {
+            try {
+                Runtime.getRuntime().removeShutdownHook(stopper);
+            } catch (IllegalStateException e) {
+                // already shutting down, the hook takes care of the child
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #onExit} once, on whichever thread gets there first; the other one waits for it,
+     * so that this JVM does not halt halfway through.
+     */
+    private synchronized void exited() {
+        Runnable action = onExit;
+        onExit = null;
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Passes on the {@link #FORWARDED_SIGNALS} to the child with {@code kill}, as Java cannot send them.
+     */
+    private static void forwardSignals(Process process) {
+        if (File.pathSeparatorChar != ':') {
+            return;
+        }
+        String pid;
+        try {
+            // Process.pid() is only there from Java 9 on
+            pid = String.valueOf(Process.class.getMethod("pid").invoke(process));
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.FINE, "Cannot tell the process ID of the child JVM, not forwarding signals", e);
+            return;
+        }
+        for (String name : FORWARDED_SIGNALS) {
+            Signal.handle(new Signal(name), signal -> {
+                try {
+                    new ProcessBuilder("kill", "-" + name, pid).inheritIO().start();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to forward SIG" + name + " to the child JVM", e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the launcher in a child JVM that uses an application class data sharing archive of the
+ * classes loaded by a previous run.
+ *
+ * <p>
+ * When there is no archive yet, the child JVM records one when it exits with
+ * {@code -XX:ArchiveClassesAtExit}, which is then moved into place once the child exited, also when
+ * it was stopped by stopping this JVM. Later starts map it with
+ * {@code -XX:SharedArchiveFile}. Since classes are only archived when loaded from a file that
+ * stays where it is, the child extracts {@code winstone.jar} with {@link ExtractedFileCache}.
+ *
+ * <p>
+ * The archive is named after the Jenkins version, a digest of the WAR's central directory, and
+ * the JVM and its options, so a different WAR or runtime never uses a stale archive. Archives of
+ * other versions are deleted, and so are the recordings that earlier runs left behind when they were killed.
+ */
+final class ClassDataSharing {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassDataSharing.class.getName());
+
+    private static final String PREFIX = "jenkins-";
+    private static final String SUFFIX = ".jsa";
+
+    private static final Pattern ARCHIVE_NAME = Pattern.compile(Pattern.quote(PREFIX) + ".+" + Pattern.quote(SUFFIX) + "(\\..+\\.tmp)?");
+
+    /**
+     * The first release with dynamic archives.
+     */
+    private static final int MINIMUM_JAVA_VERSION = 13;
+
+    private final File directory;
+    private final ChildJvm child;
+    private final File archive;
+
+    /**
+     * @param child the child JVM to run the launcher in, with all its other options set
+     * @param war the WAR the launcher runs from
+     * @param jenkinsVersion the version of Jenkins in the WAR
+     * @param directory where to keep the archive
+     */
+    ClassDataSharing(@NonNull ChildJvm child, @NonNull File war, @NonNull String jenkinsVersion, @NonNull File directory) throws IOException {
+        this.child = child;
+        this.directory = directory;
+        String warDigest;
+        try (ZipIndex index = ZipIndex.open(war)) {
+            warDigest = index.centralDirectoryDigest().substring(0, 16);
+        }
+        this.archive = new File(directory, PREFIX + jenkinsVersion.replaceAll("[^\\w.-]", "_") + "-" + warDigest
+                + "-" + String.format("%08x", runtimeKey(child.jvmOptions())) + SUFFIX);
+    }
+
+    /**
+     * Whether the running JVM can create archives.
+     */
+    static boolean isSupported() {
+        return NestedJarClassLoader.runtimeRelease() >= MINIMUM_JAVA_VERSION;
+    }
+
+    /**
+     * Runs the launcher in a child JVM using the archive, creating the archive if needed.
+     *
+     * @param args the arguments of the child
+     * @param stdin text to send to the standard input of the child, or {@code null}
+     * @return the exit status of the child
+     */
+    int run(@NonNull List<String> args, @CheckForNull String stdin) throws IOException, InterruptedException {
+        File recording = prepare();
+        if (recording != null) {
+            // also when this JVM is stopped, which is how Jenkins usually stops
+            child.onExit(() -> install(recording));
+        }
+        return child.run(args, stdin);
+    }
+
+    /**
+     * Sets the options of the child to use the archive, or to record it if there is none yet.
+     *
+     * @return where the child records the archive, or {@code null} if it uses an existing one
+     */
+    @CheckForNull
+    File prepare() {
+        deleteStale(ManagementFactory.getRuntimeMXBean().getStartTime());
+        // the JVM warns about every class it cannot archive, like those of JFR
+        child.jvmOption("-Xlog:cds=error");
+        if (archive.isFile()) {
+            LOGGER.log(Level.INFO, "Starting with the class data sharing archive {0}", archive);
+            child.jvmOption("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            return null;
+        }
+        // concurrent starts each record their own archive, the last one wins
+        File recording = new File(directory, archive.getName() + "." + UUID.randomUUID() + ".tmp");
+        LOGGER.log(Level.INFO, "Recording the class data sharing archive {0} on exit", archive);
+        child.jvmOption("-XX:ArchiveClassesAtExit=" + recording.getAbsolutePath());
+        return recording;
+    }
+
+    /**
+     * Moves the archive the child recorded into place, or deletes what it left if it did not get to record one.
+     */
+    void install(@NonNull File recording) {
+        if (recording.length() > 0) {
+            try {
+                ExtractedFileCache.moveAtomically(recording, archive);
+                LOGGER.log(Level.FINE, "Installed the class data sharing archive {0}", archive);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to install the class data sharing archive " + archive, e);
+            }
+        } else if (!recording.delete() && recording.exists()) {
+            LOGGER.log(Level.WARNING, "Failed to delete {0}", recording);
+        }
+    }
+
+    /**
+     * Deletes the archives, complete or not, of other WARs and runtimes, and the recordings of this
+     * archive that runs before {@code since} left behind.
+     *
+     * @param since when this run started, in milliseconds since the epoch; recordings since then may
+     *              be those of concurrent starts
+     */
+    void deleteStale(long since) {
+        File[] files = directory.listFiles((dir, name) -> ARCHIVE_NAME.matcher(name).matches());
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.equals(archive)) {
+                continue;
+            }
+            if (file.getName().startsWith(archive.getName() + ".") && file.lastModified() >= since) {
+                continue;
+            }
+            LOGGER.log(Level.FINE, "Deleting the stale class data sharing archive {0}", file);
+            Janitor.delete(file);
+        }
+    }
+
+    File archive() {
+        return archive;
+    }
+
+    /**
+     * Identifies the runtime, since an archive is only valid for the JVM build and options that created it.
+     */
+    private static int runtimeKey(List<String> jvmOptions) {
+        return (System.getProperty("java.vm.vendor") + '\n' + System.getProperty("java.vm.version") + '\n'
+                + System.getProperty("java.home") + '\n' + jvmOptions).hashCode();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the classes a previous start of Winstone loaded on background threads, ahead of the
+ * launcher thread needing them.
+ *
+ * <p>
+ * The class loader records the name of each class it defines. Once Winstone is started, the
+ * names are saved to a list named after the CRC and size of {@code winstone.jar}, next to the
+ * extracted files. On the next start the classes of the list are loaded, without being
+ * initialized, by a few threads while the launcher does the rest of its work.
+ */
+final class ClassPreloader {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassPreloader.class.getName());
+
+    /**
+     * Number of threads loading classes.
+     */
+    private static final int THREADS = Integer.getInteger("executableWar.preloader.threads",
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
+    private static final String SUFFIX = ".classes";
+
+    private final File directory;
+    private final String fileName;
+
+    /**
+     * Where the list is saved.
+     */
+    private final File list;
+
+    /**
+     * The classes loaded by the previous start.
+     */
+    private final List<String> previous;
+
+    /**
+     * The classes loaded by this start, in the order they were loaded.
+     */
+    private final Set<String> loaded = Collections.synchronizedSet(new LinkedHashSet<>());
+
+    /**
+     * @param war the index of the WAR containing the jar
+     * @param resource name of the jar in the WAR
+     * @param fileName prefix of the name of the list
+     * @param directory where to keep the list
+     */
+    ClassPreloader(@NonNull ZipIndex war, @NonNull String resource, @NonNull String fileName, @NonNull File directory) throws IOException {
+        ZipIndex.Entry entry = war.get(resource);
+        if (entry == null) {
+            throw new IOException("Unable to find " + resource + " in the WAR");
+        }
+        this.directory = directory;
+        this.fileName = fileName;
+        this.list = new File(directory, ExtractedFileCache.cachedFileName(fileName, SUFFIX, entry.crc, entry.size));
+        List<String> names;
+        try {
+            names = Files.readAllLines(list.toPath(), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            names = Collections.emptyList();
+        }
+        this.previous = names;
+    }
+
+    /**
+     * Deletes the lists left behind by previous versions of the WAR.
+     */
+    void deleteStale() {
+        new ExtractedFileCache(directory).deleteStale(fileName, SUFFIX, list);
+    }
+
+    /**
+     * Where the class loader records the classes it defines.
+     */
+    Collection<String> recorder() {
+        return loaded;
+    }
+
+    /**
+     * Starts loading the classes of the previous start with {@code cl}, in the background.
+     */
+    void start(@NonNull ClassLoader cl) {
+        if (previous.isEmpty()) {
+            LOGGER.log(Level.FINE, "No classes recorded in {0} yet", list);
+            return;
+        }
+        LOGGER.log(Level.FINE, "Preloading {0} classes from {1} on {2} threads", new Object[] {previous.size(), list, THREADS});
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < THREADS; i++) {
+            Thread t = new Thread(() -> {
+                int n;
+                while ((n = next.getAndIncrement()) < previous.size()) {
+                    String name = previous.get(n);
+                    try {
+                        Class.forName(name, false, cl);
+                    } catch (ClassNotFoundException | LinkageError e) {
+                        LOGGER.log(Level.FINE, "Failed to preload " + name, e);
+                    }
+                }
+            }, "Winstone class preloader " + i);
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Saves the list of classes loaded so far, if there are classes the previous start did not load.
+     */
+    void save() {
+        List<String> names = new ArrayList<>(previous);
+        Set<String> known = new LinkedHashSet<>(previous);
+        synchronized (loaded) {
+            for (String name : loaded) {
+                if (known.add(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        if (names.size() == previous.size()) {
+            return;
+        }
+        try {
+            File tmp = File.createTempFile("." + list.getName(), ".tmp", list.getParentFile());
+            try {
+                Files.write(tmp.toPath(), names, StandardCharsets.UTF_8);
+                ExtractedFileCache.moveAtomically(tmp, list);
+            } finally {
+                if (tmp.exists() && !tmp.delete()) {
+                    LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tmp);
+                }
+            }
+            LOGGER.log(Level.FINE, "Saved {0} classes to {1}", new Object[] {names.size(), list});
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the loaded classes to " + list, e);
+        }
+    }
+
+    /**
+     * {@link URLClassLoader} that records the classes it defines.
+     */
+    static final class RecordingURLClassLoader extends URLClassLoader {
+
+        static {
+            registerAsParallelCapable();
+        }
+
+        private final Collection<String> recorder;
+
+        RecordingURLClassLoader(@NonNull URL[] urls, @NonNull Collection<String> recorder) {
+            super(urls);
+            this.recorder = recorder;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            Class<?> c = super.findClass(name);
+            recorder.add(name);
+            return c;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.nio.file.attribute.UserPrincipalNotFoundException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps copies of resources extracted from {@code jenkins.war} across restarts.
+ *
+ * <p>
+ * Each copy is named after the CRC and size the WAR's central directory records for
+ * the entry, so a different WAR never reuses a stale copy. On a hit the copy is
+ * verified against that CRC; when it is missing or corrupt the entry is extracted
+ * into a temporary file next to it, which is then renamed into place atomically.
+ * That way concurrent starts never observe a partially written file. As a CRC does not
+ * protect against a copy planted on purpose, only copies owned by the current user are
+ * reused, and by default they are kept in a directory private to that user.
+ *
+ * <p>
+ * When the WAR itself cannot be used where it is, a copy of it is kept the same way by
+ * {@link #copy(URL, String, String)}.
+ */
+final class ExtractedFileCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ExtractedFileCache.class.getName());
+
+    /**
+     * Suffix of the files holding the digest of the central directory of a copied archive.
+     */
+    private static final String DIGEST_SUFFIX = ".digest";
+
+    /**
+     * Where the cached copies live.
+     */
+    private final File directory;
+
+    ExtractedFileCache(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cache directory: the {@code --extractedFilesFolder} if given, otherwise a directory of the
+     * temporary directory that only the current user can access. As the copies kept there are run on later
+     * starts, they must not be in the shared temporary directory, where any local user could plant one.
+     *
+     * @throws IOException if the directory cannot be created, or is not private to the current user
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User provided values for running the program.")
+    static File defaultDirectory(@CheckForNull File extractedFilesFolder) throws IOException {
+        if (extractedFilesFolder != null) {
+            return extractedFilesFolder;
+        }
+        String user = System.getProperty("user.name", "").replaceAll("[^A-Za-z0-9._-]", "_");
+        File directory = new File(System.getProperty("java.io.tmpdir"), "jenkins-" + user);
+        Path path = directory.toPath();
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            // like on Windows, where the temporary directory belongs to the user
+            Files.createDirectories(path);
+            return directory;
+        }
+        try {
+            Files.createDirectory(path, PosixFilePermissions.asFileAttribute(EnumSet.of(
+                    PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE)));
+        } catch (FileAlreadyExistsException e) {
+            // created by an earlier start, or by someone else, which is checked below
+        }
+        PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory() || !attributes.owner().equals(currentUser(path))) {
+            throw new IOException(directory + " is not a directory owned by " + System.getProperty("user.name"));
+        }
+        for (PosixFilePermission permission : attributes.permissions()) {
+            if (permission.name().startsWith("GROUP_") || permission.name().startsWith("OTHERS_")) {
+                throw new IOException(directory + " can be accessed by other users than " + System.getProperty("user.name"));
+            }
+        }
+        return directory;
+    }
+
+    /**
+     * Returns a verified copy of {@code resource} from {@code war}, extracting it only if needed.
+     *
+     * @param war the WAR containing the resource
+     * @param resource name of the entry in the WAR
+     * @param fileName prefix of the cached file name
+     * @param suffix suffix of the cached file name
+     * @throws IOException if the WAR cannot be read or the copy cannot be written
+     */
+    File extract(@NonNull File war, @NonNull String resource, @NonNull String fileName, @NonNull String suffix) throws IOException {
+        try (ZipIndex index = ZipIndex.open(war)) {
+            return extract(index, resource, fileName, suffix);
+        }
+    }
+
+    /**
+     * Returns a verified copy of {@code resource} from the indexed {@code war}, extracting it only if needed.
+     *
+     * @see #extract(File, String, String, String)
+     */
+    File extract(@NonNull ZipIndex war, @NonNull String resource, @NonNull String fileName, @NonNull String suffix) throws IOException {
+        ZipIndex.Entry entry = war.get(resource);
+        if (entry == null) {
+            throw new IOException("Unable to find " + resource + " in the WAR");
+        }
+        File cached = new File(directory, cachedFileName(fileName, suffix, entry.crc, entry.size));
+        if (isOwnedByCurrentUser(cached) && isValid(cached, entry.crc, entry.size)) {
+            LOGGER.log(Level.FINE, "Reusing the cached copy {0} of {1}", new Object[] {cached, resource});
+            return cached;
+        }
+        LOGGER.log(Level.FINE, "Extracting {0} into the cache as {1}", new Object[] {resource, cached});
+        File tmp = File.createTempFile("." + fileName, ".tmp", directory);
+        try {
+            ResourceExtractor.extract(war, entry, tmp);
+            if (!isValid(tmp, entry.crc, entry.size)) {
+                throw new IOException("Extracted copy of " + resource + " does not match its CRC");
+            }
+            moveAtomically(tmp, cached);
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
+                LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tmp);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Returns a verified copy of the archive at {@code source}, copying it only if needed.
+     *
+     * <p>
+     * The copy is named after the URL, length and last modification time of the source. Next to it
+     * is the digest of its central directory, which is checked on a hit along with its length.
+     *
+     * @param source where the archive is
+     * @param fileName prefix of the cached file name
+     * @param suffix suffix of the cached file name
+     * @return the copy, or {@code null} if the source does not tell its length and last modification time
+     * @throws IOException if the source cannot be read or the copy cannot be written
+     */
+    @CheckForNull
+    File copy(@NonNull URL source, @NonNull String fileName, @NonNull String suffix) throws IOException {
+        URLConnection connection = source.openConnection();
+        long length = connection.getContentLengthLong();
+        long lastModified = connection.getLastModified();
+        if (length < 0 || lastModified <= 0) {
+            LOGGER.log(Level.FINE, "Not caching a copy of {0}, its length or last modification time is unknown", source);
+            return null;
+        }
+        CRC32 key = new CRC32();
+        key.update((source + "\n" + lastModified).getBytes(StandardCharsets.UTF_8));
+        File cached = new File(directory, cachedFileName(fileName, suffix, key.getValue(), length));
+        File digest = new File(directory, cached.getName() + DIGEST_SUFFIX);
+        if (isOwnedByCurrentUser(cached) && isOwnedByCurrentUser(digest) && isValidCopy(cached, digest, length)) {
+            LOGGER.log(Level.FINE, "Reusing the cached copy {0} of {1}", new Object[] {cached, source});
+            return cached;
+        }
+        LOGGER.log(Level.FINE, "Copying {0} into the cache as {1}", new Object[] {source, cached});
+        File tmp = File.createTempFile("." + fileName, ".tmp", directory);
+        File tmpDigest = new File(directory, tmp.getName() + DIGEST_SUFFIX);
+        try {
+            try (InputStream is = connection.getInputStream()) {
+                ResourceExtractor.copy(is, tmp);
+            }
+            if (tmp.length() != length) {
+                throw new IOException("Copied " + tmp.length() + " bytes of " + source + " instead of " + length);
+            }
+            try (ZipIndex index = ZipIndex.open(tmp)) {
+                Files.write(tmpDigest.toPath(), index.centralDirectoryDigest().getBytes(StandardCharsets.US_ASCII));
+            }
+            // the digest is written last, so that it only exists next to a complete copy
+            moveAtomically(tmp, cached);
+            moveAtomically(tmpDigest, digest);
+        } finally {
+            for (File f : new File[] {tmp, tmpDigest}) {
+                if (f.exists() && !f.delete()) {
+                    LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", f);
+                }
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Deletes the cached copies of {@code fileName} other than {@code keep},
+     * which are left behind by previous versions of the WAR.
+     */
+    void deleteStale(@NonNull String fileName, @NonNull String suffix, @NonNull File keep) {
+        Pattern pattern = Pattern.compile(Pattern.quote(fileName) + "-\\p{XDigit}{8}-\\d+" + Pattern.quote(suffix));
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        File keepDigest = new File(directory, keep.getName() + DIGEST_SUFFIX);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(DIGEST_SUFFIX)) {
+                name = name.substring(0, name.length() - DIGEST_SUFFIX.length());
+            }
+            if (!file.equals(keep) && !file.equals(keepDigest) && pattern.matcher(name).matches()) {
+                LOGGER.log(Level.FINE, "Deleting the stale cached file {0}", file);
+                long size = file.length();
+                if (file.delete()) {
+                    StartupProfile.deleted(size);
+                } else {
+                    LOGGER.log(Level.WARNING, "Failed to delete the stale cached file {0}", file);
+                }
+            }
+        }
+    }
+
+    static String cachedFileName(String fileName, String suffix, long crc, long size) {
+        return String.format("%s-%08x-%d%s", fileName, crc, size, suffix);
+    }
+
+    /**
+     * Checks whether {@code file} holds exactly the bytes the CRC and size describe.
+     */
+    static boolean isValid(File file, long expectedCrc, long expectedSize) {
+        if (!file.isFile() || file.length() != expectedSize) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            CRC32 crc = new CRC32();
+            if (expectedSize > 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, expectedSize);
+                crc.update(buffer);
+            }
+            return crc.getValue() == expectedCrc;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to verify the cached file " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether {@code file} is a complete copy of an archive, as recorded in {@code digest}.
+     */
+    private static boolean isValidCopy(File file, File digest, long expectedSize) {
+        if (!file.isFile() || file.length() != expectedSize || !digest.isFile()) {
+            return false;
+        }
+        try (ZipIndex index = ZipIndex.open(file)) {
+            return index.centralDirectoryDigest().equals(new String(Files.readAllBytes(digest.toPath()), StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to verify the cached file " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether {@code file}, or what it links to, belongs to the user running the launcher.
+     * This is the user named by {@code user.name}, so a user unknown to the system owns nothing.
+     */
+    static boolean isOwnedByCurrentUser(@NonNull File file) throws IOException {
+        Path path = file.toPath();
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try {
+            return Files.getOwner(path).equals(currentUser(path));
+        } catch (UserPrincipalNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks that {@code directory} is a directory owned by the current user, which other users cannot write to,
+     * so that they cannot have planted or replaced the files in it.
+     *
+     * @throws IOException if it is not
+     */
+    static void checkNotWritableByOthers(@NonNull File directory) throws IOException {
+        Path path = directory.toPath();
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        PosixFileAttributes attributes = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attributes.isDirectory() || !attributes.owner().equals(currentUser(path))) {
+            throw new IOException(directory + " is not a directory owned by " + System.getProperty("user.name"));
+        }
+        Set<PosixFilePermission> permissions = attributes.permissions();
+        if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+            throw new IOException(directory + " can be written to by other users than " + System.getProperty("user.name"));
+        }
+    }
+
+    private static UserPrincipal currentUser(Path path) throws IOException {
+        return path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+    }
+
+    static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
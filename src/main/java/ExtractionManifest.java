@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records what {@code --extractOnly} extracted, so that later starts can use it as it is.
+ *
+ * <p>
+ * The manifest lives next to the extracted files and records the WAR, the extracted {@code winstone.jar}
+ * and the webroot, with the length and last modification time of each. A start checks these with a few
+ * {@code stat} calls, and when they all still match it neither extracts nor cleans up anything. This is
+ * meant for container images, where the files are extracted once when the image is built.
+ *
+ * <p>
+ * As the launcher runs whatever {@code winstone.jar} the manifest names, it is only looked for in an
+ * explicit {@code --extractedFilesFolder}, never in the shared temporary directory, and both the manifest
+ * and the jar must belong to the user running the launcher, with the jar inside that folder.
+ */
+final class ExtractionManifest {
+
+    private static final Logger LOGGER = Logger.getLogger(ExtractionManifest.class.getName());
+
+    static final String FILE_NAME = "jenkins-extracted.properties";
+
+    private ExtractionManifest() {}
+
+    /**
+     * Records the extracted files, replacing any previous manifest.
+     *
+     * @param directory where the extracted files are
+     * @param war the WAR they were extracted from
+     * @param winstoneJar the extracted {@code winstone.jar}
+     * @param webroot the synchronized webroot
+     */
+    static void write(@NonNull File directory, @NonNull File war, @NonNull File winstoneJar, @NonNull File webroot) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("war", war.getAbsolutePath());
+        p.setProperty("war.length", String.valueOf(war.length()));
+        p.setProperty("war.lastModified", String.valueOf(war.lastModified()));
+        p.setProperty("winstone", winstoneJar.getAbsolutePath());
+        p.setProperty("winstone.length", String.valueOf(winstoneJar.length()));
+        p.setProperty("winstone.lastModified", String.valueOf(winstoneJar.lastModified()));
+        p.setProperty("webroot", webroot.getAbsolutePath());
+        File tmp = File.createTempFile("." + FILE_NAME, ".tmp", directory);
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+                p.store(os, "Written by --extractOnly, delete to extract again on start");
+            }
+            ExtractedFileCache.moveAtomically(tmp, new File(directory, FILE_NAME));
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
+                LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tmp);
+            }
+        }
+    }
+
+    /**
+     * Returns the extracted {@code winstone.jar} if the manifest matches the WAR and the webroot is still
+     * the one it was synchronized with.
+     *
+     * @param directory where the extracted files are
+     * @return the extracted {@code winstone.jar}, or {@code null} if there is no manifest or it does not match
+     */
+    @CheckForNull
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Written by the launcher itself.")
+    static File read(@NonNull File directory, @NonNull File war, @NonNull File webroot) {
+        File file = new File(directory, FILE_NAME);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties p = new Properties();
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            p.load(is);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Ignoring the unreadable manifest " + file, e);
+            return null;
+        }
+        File winstoneJar = new File(p.getProperty("winstone", ""));
+        try {
+            if (!ExtractedFileCache.isOwnedByCurrentUser(file) || !ExtractedFileCache.isOwnedByCurrentUser(winstoneJar)
+                    || !winstoneJar.getCanonicalFile().toPath().startsWith(directory.getCanonicalFile().toPath())) {
+                LOGGER.log(Level.WARNING, "Ignoring the manifest {0}, as it or {1} is not owned by this user or not in {2}",
+                        new Object[] {file, winstoneJar, directory});
+                return null;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Ignoring the manifest " + file + ", as its owner cannot be checked", e);
+            return null;
+        }
+        String mismatch;
+        if (!war.getAbsolutePath().equals(p.getProperty("war")) || !matches(war, p, "war")) {
+            mismatch = "the WAR";
+        } else if (!matches(winstoneJar, p, "winstone")) {
+            mismatch = "winstone.jar";
+        } else if (!webroot.getAbsolutePath().equals(p.getProperty("webroot"))
+                // Winstone expands the WAR again unless this matches
+                || new File(webroot, WebrootSynchronizer.TIMESTAMP).lastModified() != war.lastModified()) {
+            mismatch = "the webroot";
+        } else {
+            LOGGER.log(Level.FINE, "Using the files extracted as recorded in {0}", file);
+            return winstoneJar;
+        }
+        LOGGER.log(Level.INFO, "Not using the files extracted as recorded in {0}, as {1} changed since",
+                new Object[] {file, mismatch});
+        return null;
+    }
+
+    private static boolean matches(File file, Properties p, String key) {
+        return String.valueOf(file.length()).equals(p.getProperty(key + ".length"))
+                && String.valueOf(file.lastModified()).equals(p.getProperty(key + ".lastModified"))
+                && file.isFile();
+    }
+}
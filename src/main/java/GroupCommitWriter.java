@@ -0,0 +1,363 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link OutputStream} that coalesces the lines written by all threads into one write per batch.
+ *
+ * <p>
+ * Writes are appended to a shared buffer. A write that completes a line waits until that line is
+ * written: the first such writer to find nobody writing takes the complete lines of the buffer,
+ * writes them with a single call, and wakes up the writers whose lines it wrote. Writers that came
+ * in the meantime make up the next batch. A line being written stays in the buffer until it is
+ * complete, so lines are not split across batches, unless the buffer gets too large or the line stays
+ * incomplete for longer than {@link #INCOMPLETE_LINE_MILLIS} or the batch window, like a prompt or the last
+ * words of a crashing process, which a background thread then writes as it is. The batches can be made
+ * larger by waiting some time before taking them.
+ *
+ * <p>
+ * The durability policy decides when the file is forced to the disk: never, after each batch, or at
+ * most every so many milliseconds, by a background thread.
+ */
+final class GroupCommitWriter extends OutputStream {
+
+    /**
+     * Forces what was written to the disk.
+     */
+    interface Sync {
+        void force() throws IOException;
+    }
+
+    /**
+     * Never force the file.
+     */
+    static final long DURABILITY_NONE = -1;
+
+    /**
+     * Force the file after each batch.
+     */
+    static final long DURABILITY_EVERY_BATCH = 0;
+
+    /**
+     * Size over which the buffer is written even if it ends with an incomplete line.
+     */
+    private static final int MAX_BATCH = 1024 * 1024;
+
+    /**
+     * How long an incomplete line is held at least before it is written as it is.
+     */
+    static final long INCOMPLETE_LINE_MILLIS = 100;
+
+    private final OutputStream target;
+    private final Sync sync;
+
+    /**
+     * How long to wait for more lines before writing a batch.
+     */
+    private final long windowNanos;
+
+    /**
+     * How long an incomplete line is held before it is written as it is.
+     */
+    private final long incompleteLineNanos;
+
+    /**
+     * {@link #DURABILITY_NONE}, {@link #DURABILITY_EVERY_BATCH}, or the interval between forces in milliseconds.
+     */
+    private final long durability;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a batch is written.
+     */
+    private final Condition committedCondition = lock.newCondition();
+
+    /**
+     * Never signalled, to wait for the batch window while letting other writers in.
+     */
+    private final Condition window = lock.newCondition();
+
+    /**
+     * The bytes not taken by a batch yet. Guarded by {@link #lock}.
+     */
+    private byte[] pending = new byte[64 * 1024];
+    private int pendingSize;
+
+    /**
+     * The buffer of the batch being written, swapped with {@link #pending}.
+     */
+    private byte[] spare = new byte[64 * 1024];
+
+    /**
+     * Number of bytes appended since the stream was opened, the last of {@link #pending} included.
+     */
+    private long appended;
+
+    /**
+     * Number of bytes appended up to the end of the last complete line.
+     */
+    private long lineEnd;
+
+    /**
+     * Number of bytes written to the target.
+     */
+    private long committed;
+
+    /**
+     * Whether a writer is writing a batch.
+     */
+    private boolean committing;
+
+    /**
+     * Whether the bytes after the last complete line are scheduled to be written. Guarded by {@link #lock}.
+     */
+    private boolean incompleteLineScheduled;
+
+    /**
+     * Whether something was written since the file was last forced.
+     */
+    private volatile boolean dirty;
+
+    /**
+     * Writes incomplete lines and, with an interval durability, forces the file.
+     */
+    private final ScheduledExecutorService scheduler;
+
+    private boolean closed;
+
+    GroupCommitWriter(@NonNull OutputStream target, @NonNull Sync sync, long windowMillis, long durability) {
+        this(target, sync, windowMillis, durability, Math.max(windowMillis, INCOMPLETE_LINE_MILLIS));
+    }
+
+    GroupCommitWriter(@NonNull OutputStream target, @NonNull Sync sync, long windowMillis, long durability, long incompleteLineMillis) {
+        this.target = target;
+        this.sync = sync;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.incompleteLineNanos = TimeUnit.MILLISECONDS.toNanos(incompleteLineMillis);
+        this.durability = durability;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Log file group commit");
+            t.setDaemon(true);
+            return t;
+        });
+        if (durability > 0) {
+            scheduler.scheduleWithFixedDelay(this::forceIfDirty, durability, durability, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            append(b, off, len);
+            long end = lineEnd;
+            if (appended - committed >= MAX_BATCH) {
+                end = appended;
+            } else if (end <= committed || !endsLineWithin(b, off, len)) {
+                // the line is not complete yet, whoever completes it waits for it
+                scheduleIncompleteLine();
+                return;
+            }
+            commitUpTo(end);
+            scheduleIncompleteLine();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes sure that the bytes after the last complete line, if any, are written even if the line is
+     * never completed, with {@link #lock} held.
+     */
+    private void scheduleIncompleteLine() {
+        if (appended > committed && !incompleteLineScheduled && !closed) {
+            incompleteLineScheduled = true;
+            long end = appended;
+            scheduler.schedule(() -> commitIncompleteLine(end), incompleteLineNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void commitIncompleteLine(long end) {
+        lock.lock();
+        try {
+            incompleteLineScheduled = false;
+            if (closed) {
+                return;
+            }
+            commitUpTo(end);
+            // what was appended since
+            scheduleIncompleteLine();
+        } catch (IOException e) {
+            // the writers get the errors of the next writes
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean endsLineWithin(byte[] b, int off, int len) {
+        for (int i = off + len - 1; i >= off; i--) {
+            if (b[i] == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (pendingSize + len > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingSize + len));
+        }
+        System.arraycopy(b, off, pending, pendingSize, len);
+        for (int i = len - 1; i >= 0; i--) {
+            if (b[off + i] == '\n') {
+                lineEnd = appended + i + 1;
+                break;
+            }
+        }
+        pendingSize += len;
+        appended += len;
+    }
+
+    /**
+     * Waits until the bytes up to {@code end} are written, writing a batch if nobody else is, with {@link #lock} held.
+     */
+    private void commitUpTo(long end) throws IOException {
+        while (committed < end) {
+            if (committing) {
+                committedCondition.awaitUninterruptibly();
+                continue;
+            }
+            committing = true;
+            try {
+                commitBatch(end);
+            } finally {
+                committing = false;
+                committedCondition.signalAll();
+            }
+        }
+    }
+
+    /**
+     * Writes the complete lines of the buffer, or at least the bytes up to {@code end}.
+     */
+    private void commitBatch(long end) throws IOException {
+        long remaining = windowNanos;
+        try {
+            while (remaining > 0) {
+                remaining = window.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            // write the batch as it is
+            Thread.currentThread().interrupt();
+        }
+        long batchEnd = Math.max(end, lineEnd);
+        int n = (int) (batchEnd - committed);
+        byte[] batch = pending;
+        // what follows the batch moves to the other buffer
+        int rest = pendingSize - n;
+        if (spare.length < Math.max(rest, 64 * 1024)) {
+            spare = new byte[Math.max(rest, 64 * 1024)];
+        }
+        System.arraycopy(batch, n, spare, 0, rest);
+        pending = spare;
+        pendingSize = rest;
+        lock.unlock();
+        try {
+            target.write(batch, 0, n);
+            if (durability == DURABILITY_EVERY_BATCH) {
+                sync.force();
+            } else {
+                dirty = true;
+            }
+        } finally {
+            lock.lock();
+            spare = batch.length > MAX_BATCH * 2 ? new byte[64 * 1024] : batch;
+            // even if the write failed, so that the writers waiting for it do not wait forever
+            committed = batchEnd;
+        }
+    }
+
+    private void forceIfDirty() {
+        if (dirty) {
+            dirty = false;
+            try {
+                sync.force();
+            } catch (IOException e) {
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Writes what is buffered, including an incomplete line, and forces it unless the policy is {@code none}.
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.lock();
+        try {
+            commitUpTo(appended);
+            target.flush();
+        } finally {
+            lock.unlock();
+        }
+        if (durability != DURABILITY_NONE) {
+            dirty = false;
+            sync.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flush();
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        scheduler.shutdownNow();
+        target.close();
+    }
+}
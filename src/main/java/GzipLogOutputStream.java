@@ -0,0 +1,267 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * {@link OutputStream} that appends a gzip member to a file, for {@code --logfile.gzip}.
+ *
+ * <p>
+ * The compressed data is sync-flushed at most every so often and on {@link #flush()}, so that the
+ * file can be decompressed up to the last flush while it is being written, with {@code zcat} for
+ * instance. Closing the stream finishes the member, and each time the file is opened again a new
+ * member is appended, which gzip reads as one stream. The header is only written with the first
+ * bytes, so opening and closing the stream without writing leaves the file as it was.
+ *
+ * <p>
+ * A member that was not finished, because the JVM was killed, has no final block or trailer, and
+ * decompressors would take the header of the next member for more compressed data, so that nothing
+ * appended after it could be read. When the file does not end with a complete member, it is therefore
+ * moved aside as a generation of the log file, like {@link LogFileRotation} does, and a new file is started.
+ *
+ * <p>
+ * Not thread-safe, {@link LogFileOutputStream} serializes the writes, on the thread of its
+ * {@link AsyncLogWriter} so that writers do not pay for the compression.
+ */
+final class GzipLogOutputStream extends OutputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(GzipLogOutputStream.class.getName());
+
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, // magic
+        Deflater.DEFLATED,
+        0, // flags
+        0, 0, 0, 0, // modification time
+        0, // extra flags
+        (byte) 0xff, // unknown operating system
+    };
+
+    private final OutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[64 * 1024];
+
+    /**
+     * The most time between two sync flushes while writing, in milliseconds.
+     */
+    private final long syncInterval;
+
+    private long lastSync = System.currentTimeMillis();
+
+    /**
+     * Whether bytes were deflated since the last sync flush.
+     */
+    private boolean unsynced;
+
+    private boolean started;
+
+    private boolean closed;
+
+    /**
+     * Size of the file.
+     */
+    private long size;
+
+    GzipLogOutputStream(@NonNull File file, long syncInterval) throws IOException {
+        this.syncInterval = syncInterval;
+        if (file.length() > 0 && !endsWithCompleteMember(file)) {
+            File aside = LogFileRotation.newGeneration(file);
+            ExtractedFileCache.moveAtomically(file, aside);
+            LOGGER.log(Level.WARNING, "{0} ends with an unfinished gzip member, moved it to {1} to start a new file",
+                    new Object[] {file, aside});
+        }
+        size = file.length();
+        out = new FileOutputStream(file, true);
+    }
+
+    /**
+     * Checks whether the last gzip member of the file is complete, with a trailer that matches its contents.
+     * Only the last member is decompressed, as found by its header.
+     */
+    static boolean endsWithCompleteMember(@NonNull File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.position(lastMemberStart(channel));
+            try (InputStream in = new GZIPInputStream(Channels.newInputStream(channel), 64 * 1024)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (in.read(buffer) >= 0) {
+                    // only checking
+                }
+                return true;
+            } catch (EOFException | ZipException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Finds the last header written by this class, or returns 0 to check the whole file if there is none,
+     * like when it was written by another program.
+     */
+    private static long lastMemberStart(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // fill the buffer
+            }
+            for (int i = buffer.position() - HEADER.length; i >= 0; i--) {
+                if (isHeaderAt(buffer, i)) {
+                    return start + i;
+                }
+            }
+            if (start == 0) {
+                break;
+            }
+            // so that a header across two chunks is found
+            end = start + HEADER.length - 1;
+        }
+        return 0;
+    }
+
+    private static boolean isHeaderAt(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < HEADER.length; i++) {
+            if (buffer.get(offset + i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Size of the file, compressed bytes held by the deflater excluded.
+     */
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return;
+        }
+        if (!started) {
+            writeOut(HEADER, HEADER.length);
+            started = true;
+        }
+        crc.update(b, off, len);
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate(Deflater.NO_FLUSH);
+        }
+        unsynced = true;
+        if (System.currentTimeMillis() - lastSync >= syncInterval) {
+            sync();
+        }
+    }
+
+    private void deflate(int flush) throws IOException {
+        int n;
+        do {
+            n = deflater.deflate(buffer, 0, buffer.length, flush);
+            writeOut(buffer, n);
+        } while (n == buffer.length);
+    }
+
+    private void writeOut(byte[] b, int len) throws IOException {
+        if (len > 0) {
+            out.write(b, 0, len);
+            size += len;
+        }
+    }
+
+    /**
+     * Writes out all the compressed data, ending at a byte boundary that decompressors can stop at.
+     */
+    private void sync() throws IOException {
+        deflate(Deflater.SYNC_FLUSH);
+        lastSync = System.currentTimeMillis();
+        unsynced = false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (unsynced) {
+            sync();
+        }
+        out.flush();
+    }
+
+    /**
+     * Finishes the member.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (started) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(Deflater.NO_FLUSH);
+                }
+                byte[] trailer = new byte[8];
+                writeInt(trailer, 0, crc.getValue());
+                writeInt(trailer, 4, deflater.getBytesRead());
+                writeOut(trailer, trailer.length);
+            }
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private static void writeInt(byte[] b, int off, long value) {
+        for (int i = 0; i < 4; i++) {
+            b[off + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deletes directory trees in the background, off the startup path.
+ *
+ * <p>
+ * A directory is first renamed to a tombstone next to it, which is atomic and as cheap as a
+ * single delete, so the original name is immediately free for reuse. The tombstone is then
+ * deleted by a low-priority daemon thread, at a limited rate so that it does not compete with
+ * startup for I/O. Tombstones that a previous run did not get to finish are picked up by
+ * {@link #collectTombstones(File)}.
+ */
+final class Janitor {
+
+    private static final Logger LOGGER = Logger.getLogger(Janitor.class.getName());
+
+    /**
+     * Suffix of the names directories are renamed to before they are deleted.
+     */
+    static final String TOMBSTONE_SUFFIX = ".tombstone";
+
+    /**
+     * Maximum number of files the janitor deletes per second, or 0 for no limit.
+     */
+    private static final int MAX_DELETES_PER_SECOND = Integer.getInteger("executableWar.janitor.maxDeletesPerSecond", 2000);
+
+    private static final BlockingQueue<Path> QUEUE = new LinkedBlockingQueue<>();
+
+    private static Thread thread;
+
+    /**
+     * Number of tombstones scheduled and not deleted yet.
+     */
+    private static int pending;
+
+    private Janitor() {}
+
+    /**
+     * Deletes a file right away, or a directory in the background.
+     *
+     * <p>
+     * If the directory cannot be renamed, it is deleted right away instead.
+     */
+    static void delete(@NonNull File file) {
+        if (!file.isDirectory()) {
+            long size = file.length();
+            if (file.delete()) {
+                StartupProfile.deleted(size);
+            } else if (file.exists()) {
+                LOGGER.log(Level.WARNING, "Failed to delete the temporary Winstone file {0}", file);
+            }
+            return;
+        }
+        File tombstone = new File(file.getParentFile(), "." + file.getName() + "." + UUID.randomUUID() + TOMBSTONE_SUFFIX);
+        if (file.renameTo(tombstone)) {
+            LOGGER.log(Level.FINE, "Scheduled the deletion of {0} as {1}", new Object[] {file, tombstone});
+            schedule(tombstone.toPath());
+        } else {
+            LOGGER.log(Level.FINE, "Failed to rename {0}, deleting it right away", file);
+            deleteTree(file.toPath(), 0);
+        }
+    }
+
+    /**
+     * Schedules the deletion of the tombstones a previous run left behind in {@code folder}.
+     */
+    static void collectTombstones(@NonNull File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(".") && name.endsWith(TOMBSTONE_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                LOGGER.log(Level.FINE, "Scheduled the deletion of the leftover {0}", file);
+                schedule(file.toPath());
+            }
+        }
+    }
+
+    private static synchronized void schedule(Path tombstone) {
+        pending++;
+        QUEUE.add(tombstone);
+        if (thread == null) {
+            thread = new Thread(Janitor::run, "Winstone temporary files janitor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    private static void run() {
+        try {
+            while (true) {
+                Path tombstone = QUEUE.take();
+                try {
+                    deleteTree(tombstone, MAX_DELETES_PER_SECOND);
+                } finally {
+                    deleted();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static synchronized void deleted() {
+        if (--pending == 0) {
+            Janitor.class.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the tombstones scheduled so far are deleted.
+     *
+     * @return whether they were deleted within the timeout
+     */
+    static synchronized boolean awaitIdle(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            Janitor.class.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a tree, deleting at most {@code maxDeletesPerSecond} files and directories per second.
+     *
+     * @return the number of files and directories deleted
+     */
+    static long deleteTree(Path root, int maxDeletesPerSecond) {
+        final long start = System.nanoTime();
+        final long[] deleted = {0};
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (delete(file)) {
+                        StartupProfile.deleted(attrs.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (!(e instanceof NoSuchFileException)) {
+                        LOGGER.log(Level.WARNING, "Failed to delete the temporary Winstone file " + file, e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                private boolean delete(Path path) {
+                    try {
+                        Files.deleteIfExists(path);
+                        deleted[0]++;
+                        return true;
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to delete the temporary Winstone file " + path, e);
+                        return false;
+                    } finally {
+                        throttle();
+                    }
+                }
+
+                private void throttle() {
+                    if (maxDeletesPerSecond <= 0) {
+                        return;
+                    }
+                    long ahead = deleted[0] * 1_000_000_000L / maxDeletesPerSecond - (System.nanoTime() - start);
+                    if (ahead > 10_000_000L) {
+                        try {
+                            Thread.sleep(ahead / 1_000_000L);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete the temporary Winstone files in " + root, e);
+        }
+        LOGGER.log(Level.FINE, "Deleted {0} files from {1} in {2} ms",
+                new Object[] {deleted[0], root, (System.nanoTime() - start) / 1_000_000L});
+        return deleted[0];
+    }
+}
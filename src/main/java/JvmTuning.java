@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Picks the heap size, the garbage collector and its threads, and the code cache and metaspace sizes
+ * of the JVM that runs Jenkins from the CPU and memory it may use, for {@code --tuned}.
+ *
+ * <p>
+ * The default ergonomics size the heap at a quarter of the memory, and pick a collector meant for
+ * a desktop when there are fewer than two CPUs or less than 1792 MB, which suits Jenkins poorly in
+ * a container. Options the user set are never overridden.
+ *
+ * <p>
+ * The heap and metaspace are sized from what is left once the launcher, the code cache and the native
+ * memory of the child are set aside, as the cgroup limit applies to both JVMs, and going over it gets
+ * them killed rather than told to collect garbage. The least metaspace Jenkins needs is taken out of
+ * the share of the heap, and when what is left is too small for both, the memory is not sized at all.
+ */
+final class JvmTuning {
+
+    private static final Logger LOGGER = Logger.getLogger(JvmTuning.class.getName());
+
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * The least heap and metaspace sized for, in MB.
+     */
+    static final long MIN_HEAP_MB = 64;
+    static final long MIN_METASPACE_MB = 128;
+
+    /**
+     * Memory left to the launcher, which waits for the child in the same cgroup, in MB.
+     */
+    static final long PARENT_RESERVE_MB = 128;
+
+    /**
+     * Share of the memory left to what the child allocates outside of the heap, metaspace and code cache,
+     * like thread stacks, the structures of the collector and direct buffers.
+     */
+    static final int NATIVE_RESERVE_PERCENT = 10;
+
+    /**
+     * The settings for a kind of use, picked with {@code --tuned=<profile>}.
+     */
+    enum Profile {
+        /**
+         * Short pauses with G1, unless there is too little to run it.
+         */
+        BALANCED(50, 25, null, 240, 15),
+        /**
+         * The most work done with the parallel collector and a fixed heap, at the cost of longer pauses.
+         */
+        THROUGHPUT(70, 100, "Parallel", 240, 10),
+        /**
+         * The smallest footprint, for small controllers with a few jobs.
+         */
+        SMALL(50, 25, "Serial", 64, 25);
+
+        /**
+         * Share of the memory for the maximum heap; the rest goes to metaspace, code cache, thread stacks and buffers.
+         */
+        final int heapPercent;
+        /**
+         * Share of the maximum heap committed on start.
+         */
+        final int initialHeapPercent;
+        /**
+         * The collector, or {@code null} to pick one by the CPUs and memory.
+         */
+        @CheckForNull
+        final String gc;
+        final int codeCacheMb;
+        /**
+         * Share of the memory metaspace may grow to, as plugins load many classes.
+         */
+        final int metaspacePercent;
+
+        Profile(int heapPercent, int initialHeapPercent, @CheckForNull String gc, int codeCacheMb, int metaspacePercent) {
+            this.heapPercent = heapPercent;
+            this.initialHeapPercent = initialHeapPercent;
+            this.gc = gc;
+            this.codeCacheMb = codeCacheMb;
+            this.metaspacePercent = metaspacePercent;
+        }
+
+        /**
+         * @throws IllegalArgumentException if there is no such profile
+         */
+        static Profile of(@NonNull String name) {
+            return name.isEmpty() ? BALANCED : valueOf(name.toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    private JvmTuning() {}
+
+    /**
+     * The options for this machine or container.
+     *
+     * @param jvmOptions the options already set, which are left alone
+     */
+    static List<String> options(@NonNull Profile profile, @NonNull CgroupLimits limits, @NonNull List<String> jvmOptions) {
+        long memory = limits.memory();
+        if (memory == CgroupLimits.UNLIMITED) {
+            memory = physicalMemory();
+        }
+        int cpus = Runtime.getRuntime().availableProcessors();
+        if (limits.cpus() != CgroupLimits.UNLIMITED) {
+            cpus = (int) Math.min(cpus, Math.max(1, Math.ceil(limits.cpus())));
+        }
+        return options(profile, memory, cpus, jvmOptions);
+    }
+
+    /**
+     * @param memory the memory that may be used, in bytes, or {@link CgroupLimits#UNLIMITED} if unknown
+     * @param cpus the CPUs that may be used
+     */
+    static List<String> options(@NonNull Profile profile, long memory, int cpus, @NonNull List<String> jvmOptions) {
+        List<String> options = new ArrayList<>();
+        long availableMb = memory / MB - PARENT_RESERVE_MB - memory / MB * NATIVE_RESERVE_PERCENT / 100
+                - profile.codeCacheMb;
+        boolean tooSmall = memory != CgroupLimits.UNLIMITED && availableMb < MIN_HEAP_MB + MIN_METASPACE_MB;
+        if (tooSmall) {
+            LOGGER.log(Level.WARNING, "{0} MB of memory is too little to size the heap, metaspace and code cache"
+                    + " of the {1} profile, leaving them to the JVM", new Object[] {memory / MB, profile.name().toLowerCase(Locale.ENGLISH)});
+        } else if (memory != CgroupLimits.UNLIMITED) {
+            long metaspaceMb = Math.max(MIN_METASPACE_MB, availableMb * profile.metaspacePercent / 100);
+            long heapMb = Math.min(availableMb * profile.heapPercent / 100, availableMb - metaspaceMb);
+            // either bound alone could end up on the wrong side of the other one
+            if (!isSet(jvmOptions, "-Xmx", "-Xms", "-XX:MaxHeapSize=", "-XX:InitialHeapSize=", "-XX:MaxRAM",
+                    "-XX:InitialRAMPercentage=", "-XX:MinRAMPercentage=")) {
+                options.add("-Xmx" + heapMb + "m");
+                options.add("-Xms" + Math.max(8, heapMb * profile.initialHeapPercent / 100) + "m");
+            }
+            if (!isSet(jvmOptions, "-XX:MaxMetaspaceSize=")) {
+                options.add("-XX:MaxMetaspaceSize=" + metaspaceMb + "m");
+            }
+        }
+
+        String gc = profile.gc;
+        if (gc == null) {
+            // the same threshold as the JVM uses for a server class machine
+            gc = cpus >= 2 && (memory == CgroupLimits.UNLIMITED || memory >= 1792 * MB) ? "G1" : "Serial";
+        }
+        if (jvmOptions.stream().noneMatch(option -> option.matches("-XX:\\+Use\\w+GC"))) {
+            options.add("-XX:+Use" + gc + "GC");
+        }
+        if (!gc.equals("Serial")) {
+            if (!isSet(jvmOptions, "-XX:ParallelGCThreads=")) {
+                options.add("-XX:ParallelGCThreads=" + cpus);
+            }
+            if (!isSet(jvmOptions, "-XX:ConcGCThreads=")) {
+                options.add("-XX:ConcGCThreads=" + Math.max(1, (cpus + 2) / 4));
+            }
+        }
+        if (!isSet(jvmOptions, "-XX:ActiveProcessorCount=")) {
+            // sizes the thread pools of the JIT compiler and of Jenkins alike
+            options.add("-XX:ActiveProcessorCount=" + cpus);
+        }
+        if (!tooSmall && !isSet(jvmOptions, "-XX:ReservedCodeCacheSize=")) {
+            options.add("-XX:ReservedCodeCacheSize=" + profile.codeCacheMb + "m");
+        }
+        return options;
+    }
+
+    private static boolean isSet(List<String> jvmOptions, String... prefixes) {
+        for (String option : jvmOptions) {
+            for (String prefix : prefixes) {
+                if (option.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("deprecation") // getTotalMemorySize is only there since Java 14
+    private static long physicalMemory() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+        }
+        return CgroupLimits.UNLIMITED;
+    }
+}
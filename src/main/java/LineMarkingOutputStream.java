@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link OutputStream} that starts each line with a sequence number and a time stamp, for
+ * {@code --logfile.markers}.
+ *
+ * <p>
+ * The sequence numbers are shared by all the streams, so that the lines of stdout and stderr written
+ * to different files can be merged back in order, with {@code sort -m -n -s -k1,1} for instance.
+ * A line gets its number when its first byte is written.
+ *
+ * <p>
+ * Not thread-safe, the {@link java.io.PrintStream} in front of it serializes the writes.
+ */
+final class LineMarkingOutputStream extends FilterOutputStream {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final AtomicLong sequence;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    private boolean atLineStart = true;
+
+    LineMarkingOutputStream(@NonNull OutputStream out) {
+        this(out, SEQUENCE);
+    }
+
+    LineMarkingOutputStream(@NonNull OutputStream out, @NonNull AtomicLong sequence) {
+        super(out);
+        this.sequence = sequence;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /**
+     * Writes the bytes with the markers of the lines they start, with a single write.
+     */
+    @Override
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        buffer.reset();
+        int start = off;
+        for (int i = off; i < off + len; i++) {
+            if (atLineStart) {
+                buffer.write(b, start, i - start);
+                start = i;
+                byte[] marker = (sequence.incrementAndGet() + " " + Instant.now() + " ").getBytes(StandardCharsets.US_ASCII);
+                buffer.write(marker, 0, marker.length);
+                atLineStart = false;
+            }
+            if (b[i] == '\n') {
+                atLineStart = true;
+            }
+        }
+        buffer.write(b, start, off + len - start);
+        buffer.writeTo(out);
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what {@link LogFileOutputStream} does, for {@code --logfile.metrics}.
+ *
+ * <p>
+ * The counters are exposed through JMX, and can also be written every so often to a file in the
+ * text format of Prometheus, for its node exporter to collect. A thread samples them every second
+ * to compute the rates. None of this is loaded without {@code --logfile.metrics}.
+ */
+final class LogFileMetrics implements LogFileMetricsMBean {
+
+    private static final Logger LOGGER = Logger.getLogger(LogFileMetrics.class.getName());
+
+    /**
+     * Number of latency buckets, the next to last one being up to about a second.
+     */
+    static final int BUCKETS = 22;
+
+    /**
+     * The metrics written to a file.
+     */
+    private static final List<LogFileMetrics> DUMPED = new CopyOnWriteArrayList<>();
+
+    private final File file;
+    private final ObjectName name;
+    private final LongSupplier fileSize;
+
+    @CheckForNull
+    private final AsyncLogWriter async;
+
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final LongAdder contendedWrites = new LongAdder();
+    private final LongAdder reopens = new LongAdder();
+    private final LongAdder failedReopens = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private volatile long lastReopen;
+
+    @CheckForNull
+    private volatile File dumpTarget;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Log file metrics");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private long sampledAt = System.nanoTime();
+    private long sampledBytes;
+    private long sampledWrites;
+    private volatile double bytesPerSecond;
+    private volatile double writesPerSecond;
+
+    LogFileMetrics(@NonNull File file, @NonNull LongSupplier fileSize, @CheckForNull AsyncLogWriter async) {
+        this.file = file;
+        this.name = objectName(file);
+        this.fileSize = fileSize;
+        this.async = async;
+        sampler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    static ObjectName objectName(File file) {
+        try {
+            return new ObjectName("jenkins.executableWar:type=LogFile,name=" + ObjectName.quote(file.getName()));
+        } catch (MalformedObjectNameException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Registers the MBean.
+     */
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register the metrics of " + file, e);
+        }
+    }
+
+    /**
+     * Unregisters the MBean, and stops sampling and writing the metrics.
+     */
+    void close() {
+        DUMPED.remove(this);
+        sampler.shutdownNow();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            // was not registered
+        }
+    }
+
+    /**
+     * Writes the metrics to a file every so often.
+     */
+    void dumpEvery(@NonNull File target, long millis) {
+        dumpTarget = target;
+        DUMPED.add(this);
+        sampler.scheduleWithFixedDelay(() -> {
+            try {
+                dump(target);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write the metrics of " + file + " to " + target, e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    void recordWrite(int len, long nanos) {
+        bytes.add(len);
+        writes.increment();
+        latencies.incrementAndGet(bucket(nanos));
+        latencyNanos.add(nanos);
+        maxLatencyNanos.accumulate(nanos);
+    }
+
+    void recordLockWait(long nanos) {
+        contendedWrites.increment();
+        lockWaitNanos.add(nanos);
+    }
+
+    void recordReopen() {
+        reopens.increment();
+        lastReopen = System.currentTimeMillis();
+    }
+
+    void recordFailedReopen() {
+        failedReopens.increment();
+    }
+
+    void recordRotation() {
+        rotations.increment();
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long b = bytes.sum();
+        long w = writes.sum();
+        double seconds = (now - sampledAt) / 1e9;
+        bytesPerSecond = (b - sampledBytes) / seconds;
+        writesPerSecond = (w - sampledWrites) / seconds;
+        sampledAt = now;
+        sampledBytes = b;
+        sampledWrites = w;
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text format, replacing the file atomically, along with
+     * those of the other streams written to the same file, like when stdout and stderr are split.
+     */
+    void dump(@NonNull File target) throws IOException {
+        List<LogFileMetrics> streams = new ArrayList<>();
+        for (LogFileMetrics m : DUMPED) {
+            if (target.equals(m.dumpTarget)) {
+                streams.add(m);
+            }
+        }
+        if (!streams.contains(this)) {
+            streams.add(this);
+        }
+        StringBuilder sb = new StringBuilder();
+        family(sb, "jenkins_log_bytes_total", "counter", "Bytes written to the log file.", streams, LogFileMetrics::getBytesWritten);
+        family(sb, "jenkins_log_writes_total", "counter", "Writes to the log file.", streams, LogFileMetrics::getWrites);
+        sb.append("# HELP jenkins_log_write_seconds Latency of the writes to the log file.\n");
+        sb.append("# TYPE jenkins_log_write_seconds histogram\n");
+        for (LogFileMetrics m : streams) {
+            String labels = m.labels();
+            long cumulated = 0;
+            long[] histogram = m.getWriteLatencyHistogram();
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                cumulated += histogram[i];
+                sb.append(String.format(Locale.ROOT, "jenkins_log_write_seconds_bucket{%s,le=\"%s\"} %d%n",
+                        labels, Double.toString((1L << i) / 1e6), cumulated));
+            }
+            cumulated += histogram[BUCKETS - 1];
+            sb.append(String.format(Locale.ROOT, "jenkins_log_write_seconds_bucket{%s,le=\"+Inf\"} %d%n", labels, cumulated));
+            sb.append(String.format(Locale.ROOT, "jenkins_log_write_seconds_sum{%s} %s%n", labels, Double.toString(m.latencyNanos.sum() / 1e9)));
+            sb.append(String.format(Locale.ROOT, "jenkins_log_write_seconds_count{%s} %d%n", labels, cumulated));
+        }
+        family(sb, "jenkins_log_lock_wait_seconds_total", "counter", "Time spent waiting for the log file lock.", streams, m -> m.lockWaitNanos.sum() / 1e9);
+        family(sb, "jenkins_log_contended_writes_total", "counter", "Writes that waited for the log file lock.", streams, LogFileMetrics::getContendedWrites);
+        family(sb, "jenkins_log_reopens_total", "counter", "Reopens of the log file.", streams, LogFileMetrics::getReopens);
+        family(sb, "jenkins_log_failed_reopens_total", "counter", "Failed reopens of the log file.", streams, LogFileMetrics::getFailedReopens);
+        family(sb, "jenkins_log_rotations_total", "counter", "Rotations of the log file.", streams, LogFileMetrics::getRotations);
+        family(sb, "jenkins_log_dropped_writes_total", "counter", "Writes dropped because the log buffer was full.", streams, LogFileMetrics::getDroppedWrites);
+        family(sb, "jenkins_log_spilled_writes_total", "counter", "Writes made by the writing thread because the log buffer was full.", streams, LogFileMetrics::getSpilledWrites);
+        family(sb, "jenkins_log_last_reopen_timestamp_seconds", "gauge", "When the log file was last reopened.", streams, m -> m.lastReopen / 1000);
+        family(sb, "jenkins_log_file_size_bytes", "gauge", "Size of the log file.", streams, LogFileMetrics::getFileSize);
+
+        File tmp = new File(target.getPath() + ".tmp");
+        Files.write(tmp.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        ExtractedFileCache.moveAtomically(tmp, target);
+    }
+
+    private String labels() {
+        return "file=\"" + file.getName().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static void family(StringBuilder sb, String name, String type, String help,
+                               List<LogFileMetrics> streams, Function<LogFileMetrics, Number> value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (LogFileMetrics m : streams) {
+            sb.append(name).append('{').append(m.labels()).append("} ").append(value.apply(m)).append('\n');
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    @Override
+    public double getWritesPerSecond() {
+        return writesPerSecond;
+    }
+
+    @Override
+    public long[] getWriteLatencyHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = latencies.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public long getWriteLatencyMedianMicros() {
+        return percentile(0.5);
+    }
+
+    @Override
+    public long getWriteLatency99thPercentileMicros() {
+        return percentile(0.99);
+    }
+
+    private long percentile(double quantile) {
+        long[] histogram = getWriteLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long cumulated = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            cumulated += histogram[i];
+            if (cumulated >= rank) {
+                return 1L << i;
+            }
+        }
+        return getWriteLatencyMaxMicros();
+    }
+
+    @Override
+    public long getWriteLatencyMaxMicros() {
+        return maxLatencyNanos.get() / 1000;
+    }
+
+    @Override
+    public long getLockWaitMillis() {
+        return lockWaitNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public long getContendedWrites() {
+        return contendedWrites.sum();
+    }
+
+    @Override
+    public long getReopens() {
+        return reopens.sum();
+    }
+
+    @Override
+    public long getFailedReopens() {
+        return failedReopens.sum();
+    }
+
+    @Override
+    public long getSecondsSinceLastReopen() {
+        long last = lastReopen;
+        return last == 0 ? -1 : (System.currentTimeMillis() - last) / 1000;
+    }
+
+    @Override
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    @Override
+    public long getFileSize() {
+        return fileSize.getAsLong();
+    }
+
+    @Override
+    public long getDroppedWrites() {
+        return async == null ? 0 : async.getDroppedWrites();
+    }
+
+    @Override
+    public long getSpilledWrites() {
+        return async == null ? 0 : async.getSpilledWrites();
+    }
+}
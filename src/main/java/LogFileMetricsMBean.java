@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+/**
+ * Management interface of {@link LogFileMetrics}, registered as
+ * {@code jenkins.executableWar:type=LogFile,name=<file name>}.
+ *
+ * <p>
+ * Latencies are those of the writes made to the log file stream, which include waiting for the
+ * lock, or for room in the buffer in the asynchronous mode.
+ */
+public interface LogFileMetricsMBean {
+
+    long getBytesWritten();
+
+    long getWrites();
+
+    /**
+     * Bytes written per second over the last second.
+     */
+    double getBytesPerSecond();
+
+    /**
+     * Writes per second over the last second.
+     */
+    double getWritesPerSecond();
+
+    /**
+     * Number of writes per latency bucket. Bucket {@code i} counts the writes that took less than
+     * {@code 2^i} microseconds, and the last one the slower writes.
+     */
+    long[] getWriteLatencyHistogram();
+
+    /**
+     * Upper bound of the bucket of the median write latency, in microseconds.
+     */
+    long getWriteLatencyMedianMicros();
+
+    /**
+     * Upper bound of the bucket of the 99th percentile of the write latency, in microseconds.
+     */
+    long getWriteLatency99thPercentileMicros();
+
+    long getWriteLatencyMaxMicros();
+
+    /**
+     * Total time writers waited for another one to finish writing to the file.
+     */
+    long getLockWaitMillis();
+
+    /**
+     * Number of writes that waited for another one to finish writing to the file.
+     */
+    long getContendedWrites();
+
+    long getReopens();
+
+    long getFailedReopens();
+
+    /**
+     * Seconds since the file was last reopened, or -1 if it was not.
+     */
+    long getSecondsSinceLastReopen();
+
+    long getRotations();
+
+    /**
+     * Current size of the log file, in bytes.
+     */
+    long getFileSize();
+
+    /**
+     * Writes dropped because the buffer of the asynchronous mode was full.
+     */
+    long getDroppedWrites();
+
+    /**
+     * Writes made by the writing thread because the buffer of the asynchronous mode was full.
+     */
+    long getSpilledWrites();
+}
@@ -0,0 +1,328 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import java.io.File;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code --logfile.*} options, which tune how {@link LogFileOutputStream} writes the log file.
+ *
+ * <p>
+ * Each option is given as {@code --logfile.name=value}. Invalid and unknown options are reported
+ * and ignored, like the other options of the launcher, so that a typo does not keep Jenkins from
+ * starting.
+ */
+final class LogFileOptions {
+
+    static final String PREFIX = "--logfile.";
+
+    /**
+     * What writers do when the buffer of the asynchronous mode is full, or null to write synchronously.
+     */
+    @CheckForNull
+    AsyncLogWriter.BackPressure async;
+
+    /**
+     * Where stdout goes instead of {@code --logfile}, if anywhere.
+     */
+    @CheckForNull
+    File out;
+
+    /**
+     * Where stderr goes instead of {@code --logfile}, if anywhere.
+     */
+    @CheckForNull
+    File err;
+
+    /**
+     * Whether each line starts with a sequence number and a time stamp.
+     */
+    boolean markers;
+
+    /**
+     * Size of the buffer of the asynchronous mode, in bytes.
+     */
+    int bufferSize = 1024 * 1024;
+
+    /**
+     * Size over which the log file is rotated, in bytes, or 0 to not rotate on size.
+     */
+    long rotateSize;
+
+    /**
+     * Age over which the log file is rotated, in milliseconds, or 0 to not rotate on age.
+     */
+    long rotateEvery;
+
+    /**
+     * Number of rotated log files to keep.
+     */
+    int keep = 5;
+
+    /**
+     * Size of the memory-mapped segments the log file is written through, or 0 to write it with system calls.
+     */
+    int segmentSize;
+
+    /**
+     * When the memory-mapped segments are forced to the disk, as defined by {@link MappedLogOutputStream}.
+     */
+    long msync = MappedLogOutputStream.MSYNC_NONE;
+
+    /**
+     * Whether the log file is gzipped as it is written.
+     */
+    boolean gzip;
+
+    /**
+     * The most time between two sync flushes of the gzipped log file, in milliseconds.
+     */
+    long gzipFlushInterval = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * How long lines are collected before being written together, in milliseconds, or -1 to not group them.
+     */
+    long groupCommit = -1;
+
+    /**
+     * When the log file is forced to the disk, as defined by {@link GroupCommitWriter}.
+     */
+    long durability = GroupCommitWriter.DURABILITY_NONE;
+
+    /**
+     * Whether to register the {@link LogFileMetrics} MBean.
+     */
+    boolean metrics;
+
+    /**
+     * Where to write the metrics every {@link #metricsInterval}, if anywhere.
+     */
+    @CheckForNull
+    File metricsFile;
+
+    long metricsInterval = TimeUnit.SECONDS.toMillis(15);
+
+    /**
+     * Parses the {@code --logfile.*} options among the arguments.
+     */
+    static LogFileOptions parse(String[] args) {
+        LogFileOptions options = new LogFileOptions();
+        for (String arg : args) {
+            if (!arg.startsWith(PREFIX)) {
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            String name = arg.substring(PREFIX.length(), eq < 0 ? arg.length() : eq);
+            String value = eq < 0 ? "" : arg.substring(eq + 1);
+            try {
+                if (!options.set(name, value)) {
+                    System.err.println("Ignoring unknown option " + arg);
+                }
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                System.err.println("Ignoring invalid option " + arg + ": " + e.getMessage());
+            }
+        }
+        if (options.gzip && options.segmentSize > 0) {
+            // the memory-mapped segments would be written uncompressed
+            System.err.println("Ignoring " + PREFIX + "segmentSize, it cannot be combined with " + PREFIX + "gzip");
+            options.segmentSize = 0;
+        }
+        return options;
+    }
+
+    /**
+     * Sets an option.
+     *
+     * @return false if there is no such option
+     */
+    private boolean set(String name, String value) {
+        switch (name) {
+            case "out":
+                out = new File(value);
+                return true;
+            case "err":
+                err = new File(value);
+                return true;
+            case "markers":
+                markers = value.isEmpty() || Boolean.parseBoolean(value);
+                return true;
+            case "async":
+                async = value.isEmpty()
+                        ? AsyncLogWriter.BackPressure.BLOCK
+                        : AsyncLogWriter.BackPressure.valueOf(value.toUpperCase(Locale.ENGLISH));
+                return true;
+            case "bufferSize":
+                bufferSize = Math.toIntExact(parseSize(value));
+                return true;
+            case "rotateSize":
+                rotateSize = parseSize(value);
+                return true;
+            case "rotateEvery":
+                rotateEvery = parseDuration(value);
+                return true;
+            case "keep":
+                keep = Integer.parseInt(value);
+                if (keep < 0) {
+                    throw new IllegalArgumentException("must not be negative");
+                }
+                return true;
+            case "segmentSize":
+                segmentSize = Math.toIntExact(parseSize(value));
+                return true;
+            case "msync":
+                msync = parseSyncPolicy(value, "segment");
+                return true;
+            case "gzip":
+                gzip = value.isEmpty() || Boolean.parseBoolean(value);
+                return true;
+            case "gzipFlush":
+                gzipFlushInterval = parseDuration(value);
+                return true;
+            case "groupCommit":
+                // no window, also when left out
+                groupCommit = value.isEmpty() || toMillis(value) == 0 ? 0 : parseDuration(value);
+                return true;
+            case "durability":
+                durability = parseSyncPolicy(value, "every-batch");
+                return true;
+            case "metrics":
+                metrics = value.isEmpty() || Boolean.parseBoolean(value);
+                return true;
+            case "metricsFile":
+                metrics = true;
+                metricsFile = new File(value);
+                return true;
+            case "metricsInterval":
+                metricsInterval = parseDuration(value);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Parses {@code none}, {@code interval=<duration>}, or the given word for each time there is something to sync.
+     *
+     * @return -1 for {@code none}, 0 for each time, or the interval in milliseconds
+     */
+    static long parseSyncPolicy(String value, String each) {
+        if (value.equals("none")) {
+            return -1;
+        }
+        if (value.equals(each)) {
+            return 0;
+        }
+        if (value.startsWith("interval=")) {
+            return parseDuration(value.substring("interval=".length()));
+        }
+        throw new IllegalArgumentException("expected none, " + each + " or interval=<duration>");
+    }
+
+    /**
+     * Tells if lines are written in batches, which the durability policies need.
+     */
+    boolean isGroupCommitted() {
+        return groupCommit >= 0 || durability != GroupCommitWriter.DURABILITY_NONE;
+    }
+
+    /**
+     * Tells if the log file is rotated.
+     */
+    boolean isRotated() {
+        return rotateSize > 0 || rotateEvery > 0;
+    }
+
+    /**
+     * Parses a number of bytes, with an optional {@code k}, {@code m} or {@code g} suffix.
+     */
+    static long parseSize(String value) {
+        long unit = 1;
+        String digits = value;
+        if (!value.isEmpty()) {
+            switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+                case 'k':
+                    unit = 1024;
+                    break;
+                case 'm':
+                    unit = 1024 * 1024;
+                    break;
+                case 'g':
+                    unit = 1024 * 1024 * 1024;
+                    break;
+                default:
+                    break;
+            }
+            if (unit != 1) {
+                digits = value.substring(0, value.length() - 1);
+            }
+        }
+        long size = Math.multiplyExact(Long.parseLong(digits), unit);
+        if (size <= 0) {
+            throw new IllegalArgumentException("must be positive");
+        }
+        return size;
+    }
+
+    /**
+     * Parses a duration in milliseconds, with an optional {@code s}, {@code m}, {@code h} or {@code d} suffix.
+     */
+    static long parseDuration(String value) {
+        long millis = toMillis(value);
+        if (millis <= 0) {
+            throw new IllegalArgumentException("must be positive");
+        }
+        return millis;
+    }
+
+    private static long toMillis(String value) {
+        TimeUnit unit = TimeUnit.MILLISECONDS;
+        String digits = value;
+        if (!value.isEmpty()) {
+            switch (value.charAt(value.length() - 1)) {
+                case 's':
+                    unit = value.endsWith("ms") ? TimeUnit.MILLISECONDS : TimeUnit.SECONDS;
+                    break;
+                case 'm':
+                    unit = TimeUnit.MINUTES;
+                    break;
+                case 'h':
+                    unit = TimeUnit.HOURS;
+                    break;
+                case 'd':
+                    unit = TimeUnit.DAYS;
+                    break;
+                default:
+                    break;
+            }
+            if (value.endsWith("ms")) {
+                digits = value.substring(0, value.length() - 2);
+            } else if (unit != TimeUnit.MILLISECONDS) {
+                digits = value.substring(0, value.length() - 1);
+            }
+        }
+        return unit.toMillis(Long.parseLong(digits));
+    }
+}
@@ -22,14 +22,20 @@
  * THE SOFTWARE.
  */
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import sun.misc.Signal;
 
 /**
@@ -38,65 +44,458 @@ import sun.misc.Signal;
  * <p>
  * Unlike the plain {@link FileOutputStream}, this implementation
  * listens to SIGALRM and reopens the log file. This behavior is
- * necessary for allowing log rotations to happen smoothly.
+ * necessary for allowing log rotations to happen smoothly. When stdout
+ * and stderr go to different files, both are reopened.
  *
  * <p>
- * Because the reopen operation needs to happen atomically,
- * write operations are synchronized.
+ * Writes are serialized by a {@link ReentrantLock} rather than a monitor,
+ * so that virtual threads do not pin their carrier while writing. The file
+ * is reopened without holding it: the new file is opened first, then swapped
+ * in under the lock, and the old one is closed afterwards, so writers only
+ * wait for the swap even when opening is slow.
+ *
+ * <p>
+ * With {@code --logfile.async}, writes are queued in an {@link AsyncLogWriter}
+ * instead, whose thread does the writes. The queue is drained
+ * before the log file is reopened.
+ *
+ * <p>
+ * With {@code --logfile.groupCommit} or {@code --logfile.durability}, writes
+ * go through a {@link GroupCommitWriter}, which writes the lines of
+ * concurrent writers together, behind the queue in the asynchronous mode.
+ *
+ * <p>
+ * With {@code --logfile.rotateSize} or {@code --logfile.rotateEvery}, the
+ * log file is also rotated by {@link LogFileRotation} before the write that
+ * would make it too large, or the first one after it got too old.
+ *
+ * <p>
+ * With {@code --logfile.segmentSize}, the log file is written through
+ * a {@link MappedLogOutputStream} instead of a {@link FileOutputStream}.
+ * As two of them cannot append to the same file, this one is closed
+ * before the file is reopened.
+ *
+ * <p>
+ * With {@code --logfile.gzip}, the log file is written through a
+ * {@link GzipLogOutputStream}, by the thread of the asynchronous mode, which
+ * it turns on, and the compressed data is flushed every so often. Like
+ * segments, a gzip member is finished before the file is reopened.
+ * {@code --logfile.segmentSize} is ignored then.
+ *
+ * <p>
+ * With {@code --logfile.metrics}, what the stream does is counted by {@link LogFileMetrics}.
  *
  * @author Kohsuke Kawaguchi
  */
-final class LogFileOutputStream extends FilterOutputStream {
+final class LogFileOutputStream extends OutputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(LogFileOutputStream.class.getName());
+
+    /**
+     * The open streams, like those of stdout and stderr.
+     */
+    private static final List<LogFileOutputStream> OPEN = new CopyOnWriteArrayList<>();
+
+    private static boolean signalHandled;
+
     /**
      * This is where we are writing.
      */
     private final File file;
 
-    LogFileOutputStream(File file) throws FileNotFoundException {
-        super(null);
+    /**
+     * Where writes are queued in the asynchronous mode.
+     */
+    @CheckForNull
+    private final AsyncLogWriter async;
+
+    /**
+     * What writes go through before {@link #writeToFile}: {@link #async}, a {@link GroupCommitWriter}, or null.
+     */
+    @CheckForNull
+    private final OutputStream front;
+
+    @CheckForNull
+    private final LogFileRotation rotation;
+
+    @CheckForNull
+    private final LogFileMetrics metrics;
+
+    /**
+     * Size of the memory-mapped segments, or 0 once the JVM shuts down.
+     */
+    private volatile int segmentSize;
+    private final long msync;
+
+    private final boolean gzip;
+
+    /**
+     * The most time between two sync flushes of the compressed data, or 0 once the JVM shuts down.
+     */
+    private volatile long gzipFlushInterval;
+
+    @CheckForNull
+    private final ScheduledExecutorService gzipFlusher;
+
+    /**
+     * Held while writing to {@link #out} and while changing it.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Held while reopening, which happens mostly without {@link #lock}.
+     */
+    private final ReentrantLock reopenLock = new ReentrantLock();
+
+    /**
+     * The stream of the file. Guarded by {@link #lock}.
+     */
+    private OutputStream out;
+
+    /**
+     * Size of the file, as far as we know. Changed with {@link #lock} held.
+     */
+    private volatile long size;
+
+    /**
+     * When the file was opened, as of {@link System#currentTimeMillis()}. Guarded by {@link #lock}.
+     */
+    private long openedAt;
+
+    LogFileOutputStream(File file) throws IOException {
+        this(file, new LogFileOptions());
+    }
+
+    LogFileOutputStream(File file, LogFileOptions options) throws IOException {
         this.file = file;
-        out = new FileOutputStream(file, true);
+        segmentSize = options.segmentSize;
+        msync = options.msync;
+        gzip = options.gzip;
+        gzipFlushInterval = options.gzipFlushInterval;
+        rotation = options.isRotated()
+                ? new LogFileRotation(file, options.rotateSize, options.rotateEvery, options.keep, !gzip) : null;
+        use(openFile());
+        OutputStream back = new Direct();
+        if (options.isGroupCommitted()) {
+            back = new GroupCommitWriter(back, this::forceFile, Math.max(0, options.groupCommit), options.durability);
+        }
+        AsyncLogWriter.BackPressure backPressure = options.async != null || !gzip ? options.async : AsyncLogWriter.BackPressure.BLOCK;
+        if (backPressure != null) {
+            async = new AsyncLogWriter(back, options.bufferSize, backPressure, "Log file writer for " + file.getName());
+            front = async;
+        } else {
+            async = null;
+            front = back instanceof Direct ? null : back;
+        }
+        if (options.metrics) {
+            metrics = new LogFileMetrics(file, () -> size, async);
+            metrics.register();
+            if (options.metricsFile != null) {
+                metrics.dumpEvery(options.metricsFile, options.metricsInterval);
+            }
+        } else {
+            metrics = null;
+        }
+
+        if (gzip) {
+            gzipFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Log file gzip flush");
+                t.setDaemon(true);
+                return t;
+            });
+            // in case nothing is written after the bytes not flushed yet
+            gzipFlusher.scheduleWithFixedDelay(this::flushQuietly, gzipFlushInterval, gzipFlushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            gzipFlusher = null;
+        }
+
+        if (segmentSize > 0 || gzip) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::finishForShutdown, "Log file shutdown"));
+        }
 
         if (File.pathSeparatorChar == ':') {
-            Signal.handle(new Signal("ALRM"), signal -> {
+            OPEN.add(this);
+            handleSignal();
+        }
+    }
+
+    /**
+     * Reopens all the open streams on SIGALRM.
+     */
+    private static synchronized void handleSignal() {
+        if (signalHandled) {
+            return;
+        }
+        Signal.handle(new Signal("ALRM"), signal -> {
+            for (LogFileOutputStream stream : OPEN) {
                 try {
-                    reopen();
+                    stream.reopen();
                 } catch (IOException e) {
-                    throw new UncheckedIOException(e); // failed to reopen
+                    // keep writing to the old file, rather than killing the signal dispatcher
+                    LOGGER.log(Level.WARNING, "Failed to reopen " + stream.file, e);
                 }
-            });
+            }
+        });
+        signalHandled = true;
+    }
+
+    public void reopen() throws IOException {
+        try {
+            reopenFile();
+        } catch (IOException e) {
+            if (metrics != null) {
+                metrics.recordFailedReopen();
+            }
+            throw e;
+        }
+        if (metrics != null) {
+            metrics.recordReopen();
+        }
+    }
+
+    private void reopenFile() throws IOException {
+        reopenLock.lock();
+        try {
+            if (front != null) {
+                // what was written before goes to the old file
+                front.flush();
+            }
+            if (segmentSize > 0 || gzip) {
+                lock.lock();
+                try {
+                    out.close();
+                    out = NULL; // in case reopen fails, initialize with NULL first
+                    use(openFile());
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            OutputStream opened = openFile();
+            OutputStream old;
+            lock.lock();
+            try {
+                old = out;
+                use(opened);
+            } finally {
+                lock.unlock();
+            }
+            old.close();
+        } finally {
+            reopenLock.unlock();
+        }
+    }
+
+    private OutputStream openFile() throws IOException {
+        int segmentSize = this.segmentSize;
+        if (segmentSize > 0) {
+            return new MappedLogOutputStream(file, segmentSize, msync);
+        }
+        if (gzip) {
+            return new GzipLogOutputStream(file, gzipFlushInterval);
+        }
+        return new FileOutputStream(file, true);
+    }
+
+    /**
+     * Starts writing to a newly opened file, with {@link #lock} held.
+     */
+    private void use(OutputStream opened) {
+        out = opened;
+        if (opened instanceof MappedLogOutputStream) {
+            size = ((MappedLogOutputStream) opened).size();
+        } else if (opened instanceof GzipLogOutputStream) {
+            size = ((GzipLogOutputStream) opened).size();
+        } else {
+            size = file.length();
+        }
+        openedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Truncates the last segment or finishes the gzip member. What is written during the rest of the
+     * shutdown is appended without mapping it, or compressed in a new member flushed on each write.
+     */
+    private void finishForShutdown() {
+        lock.lock();
+        try {
+            segmentSize = 0;
+            gzipFlushInterval = 0;
+            out.close();
+            out = NULL;
+            use(openFile());
+        } catch (IOException e) {
+            // the next start truncates the file
+        } finally {
+            lock.unlock();
         }
     }
 
-    public synchronized void reopen() throws IOException {
+    private void writeToFile(byte[] b, int off, int len) throws IOException {
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            if (metrics != null) {
+                metrics.recordLockWait(System.nanoTime() - start);
+            }
+        }
+        try {
+            IOException failure = null;
+            if (rotation != null && rotation.isDue(size, openedAt, len)) {
+                try {
+                    rotate(rotation);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            out.write(b, off, len);
+            if (out instanceof GzipLogOutputStream) {
+                size = ((GzipLogOutputStream) out).size();
+            } else {
+                size += len;
+            }
+            if (failure != null) {
+                // the bytes are written anyway
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rotates the file, with {@link #lock} held.
+     */
+    private void rotate(LogFileRotation rotation) throws IOException {
         out.close();
-        out = NULL; // in case reopen fails, initialize with NULL first
-        out = new FileOutputStream(file, true);
+        out = NULL;
+        try {
+            rotation.rotate();
+        } catch (IOException e) {
+            // keep writing to the same file, the rotation tries again later
+            use(openFile());
+            throw e;
+        }
+        use(openFile());
+        if (metrics != null) {
+            metrics.recordRotation();
+        }
     }
 
     @Override
-    public synchronized void write(@NonNull byte[] b) throws IOException {
-        out.write(b);
+    public void write(@NonNull byte[] b) throws IOException {
+        write(b, 0, b.length);
     }
 
     @Override
-    public synchronized void write(@NonNull byte[] b, int off, int len) throws IOException {
-        out.write(b, off, len);
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (front != null) {
+            front.write(b, off, len);
+        } else {
+            writeToFile(b, off, len);
+        }
+        if (metrics != null) {
+            metrics.recordWrite(len, System.nanoTime() - start);
+        }
     }
 
     @Override
-    public synchronized void flush() throws IOException {
-        out.flush();
+    public void flush() throws IOException {
+        if (front != null) {
+            front.flush();
+            return;
+        }
+        flushFile();
+    }
+
+    private void flushQuietly() {
+        try {
+            flushFile();
+        } catch (IOException e) {
+            // the next write reports it
+        }
+    }
+
+    private void flushFile() throws IOException {
+        lock.lock();
+        try {
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
-    public synchronized void close() throws IOException {
-        out.close();
+    public void close() throws IOException {
+        OPEN.remove(this);
+        if (gzipFlusher != null) {
+            gzipFlusher.shutdownNow();
+        }
+        if (metrics != null) {
+            metrics.close();
+        }
+        if (front != null) {
+            // closes the file once drained
+            front.close();
+            return;
+        }
+        closeFile();
+    }
+
+    private void closeFile() throws IOException {
+        lock.lock();
+        try {
+            out.close();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
-    public synchronized void write(int b) throws IOException {
-        out.write(b);
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /**
+     * Forces the current file to the disk.
+     */
+    private void forceFile() throws IOException {
+        lock.lock();
+        try {
+            if (out instanceof FileOutputStream) {
+                ((FileOutputStream) out).getChannel().force(false);
+            } else if (out instanceof MappedLogOutputStream) {
+                ((MappedLogOutputStream) out).force();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes to the current file, for {@link #front}.
+     */
+    private final class Direct extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            writeToFile(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushFile();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeFile();
+        }
     }
 
     @Override
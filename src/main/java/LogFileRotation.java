@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rotates a log file when it gets too large or too old.
+ *
+ * <p>
+ * The log file is renamed to a generation named after the time of the rotation, like
+ * {@code jenkins.log.20260101-120000}, and a new file is started, so nothing is copied on the
+ * writing path. The generations are then gzipped, and the oldest ones deleted, on a low priority
+ * thread. Generations left uncompressed by a previous run are compressed along with the next one.
+ */
+final class LogFileRotation {
+
+    private static final Logger LOGGER = Logger.getLogger(LogFileRotation.class.getName());
+
+    /**
+     * How long to keep writing to the same file after failing to rotate it, before trying again.
+     */
+    private static final long RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * The suffix of a generation: its time stamp, the counter of the rotations within the same second, if any,
+     * and whether it is compressed.
+     */
+    private static final Pattern GENERATION = Pattern.compile("\\.(\\d{8}-\\d{6})(?:-(\\d+))?(\\.gz)?");
+
+    private final File file;
+
+    /**
+     * Size over which the file is rotated, or 0.
+     */
+    private final long maxSize;
+
+    /**
+     * Age over which the file is rotated, in milliseconds, or 0.
+     */
+    private final long maxAge;
+
+    /**
+     * Number of generations kept.
+     */
+    private final int keep;
+
+    /**
+     * Whether to gzip the generations, which is not needed when the log file is compressed already.
+     */
+    private final boolean compress;
+
+    /**
+     * When renaming the file last failed, as of {@link System#currentTimeMillis()}.
+     */
+    private long failedAt;
+
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Log file compressor");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    LogFileRotation(@NonNull File file, long maxSize, long maxAge, int keep, boolean compress) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.keep = keep;
+        this.compress = compress;
+    }
+
+    /**
+     * Tells if the file should be rotated before writing to it.
+     *
+     * @param size the current size of the file
+     * @param openedAt when the file was opened, as of {@link System#currentTimeMillis()}
+     * @param len the number of bytes about to be written
+     */
+    boolean isDue(long size, long openedAt, int len) {
+        if (size == 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - failedAt < RETRY_MILLIS) {
+            return false;
+        }
+        return maxSize > 0 && size + len > maxSize
+                || maxAge > 0 && now - openedAt >= maxAge;
+    }
+
+    /**
+     * Renames the closed log file to a new generation, and compresses it in the background.
+     */
+    void rotate() throws IOException {
+        File generation = newGeneration(file);
+        try {
+            Files.move(file.toPath(), generation.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            failedAt = System.currentTimeMillis();
+            throw e;
+        }
+        compressor.execute(this::compressAndPrune);
+    }
+
+    /**
+     * The name of a new generation of {@code file}, after the current time.
+     */
+    static File newGeneration(@NonNull File file) {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ENGLISH).format(new Date());
+        File generation = new File(file.getPath() + "." + stamp);
+        for (int i = 1; generation.exists() || new File(generation.getPath() + ".gz").exists(); i++) {
+            generation = new File(file.getPath() + "." + stamp + "-" + i);
+        }
+        return generation;
+    }
+
+    /**
+     * Compresses the generations that are not yet, and deletes the oldest ones.
+     */
+    private void compressAndPrune() {
+        for (File generation : compress ? generations() : new File[0]) {
+            if (generation.getName().endsWith(".gz")) {
+                continue;
+            }
+            File gz = new File(generation.getPath() + ".gz");
+            File tmp = new File(generation.getPath() + ".gz.tmp");
+            try {
+                gzip(generation, tmp);
+                ExtractedFileCache.moveAtomically(tmp, gz);
+                Files.delete(generation.toPath());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to compress " + generation, e);
+                if (tmp.exists() && !tmp.delete()) {
+                    LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tmp);
+                }
+            }
+        }
+        File[] generations = generations();
+        for (int i = 0; i < generations.length - keep; i++) {
+            if (!generations[i].delete()) {
+                LOGGER.log(Level.WARNING, "Failed to delete the old log file {0}", generations[i]);
+            }
+        }
+    }
+
+    /**
+     * The generations, from the oldest to the newest.
+     */
+    private File[] generations() {
+        String prefix = file.getName();
+        File[] generations = file.getAbsoluteFile().getParentFile().listFiles((dir, name) ->
+                name.startsWith(prefix) && GENERATION.matcher(name.substring(prefix.length())).matches());
+        if (generations == null) {
+            return new File[0];
+        }
+        // the time stamps sort like the names, but the counters must be compared as numbers, so that -10 comes after -9;
+        // a compressed generation is never next to its original
+        Arrays.sort(generations, Comparator.comparing((File f) -> generation(f, prefix, 1))
+                .thenComparingLong(f -> Long.parseLong(generation(f, prefix, 2))));
+        return generations;
+    }
+
+    private static String generation(File file, String prefix, int group) {
+        Matcher m = GENERATION.matcher(file.getName().substring(prefix.length()));
+        if (!m.matches()) {
+            throw new IllegalArgumentException(file.getName());
+        }
+        String value = m.group(group);
+        return value != null ? value : "0";
+    }
+
+    private static void gzip(File source, File target) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(source);
+                OutputStream out = new GZIPOutputStream(new FileOutputStream(target), buffer.length)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Waits for the pending compressions, for tests.
+     */
+    void awaitCompression() throws InterruptedException, ExecutionException {
+        compressor.submit(() -> { }).get();
+    }
+}
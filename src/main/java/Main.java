@@ -26,7 +26,6 @@
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,14 +36,17 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
-import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.Set;
 import java.util.UUID;
@@ -52,6 +54,7 @@ import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * Launcher class for stand-alone execution of Jenkins as
@@ -97,6 +100,87 @@ public class Main {
      */
     private static final String ENABLE_FUTURE_JAVA_CLI_SWITCH = "--enable-future-java";
 
+    /**
+     * Flag to keep the extracted {@code winstone.jar} across restarts instead of extracting it on every start.
+     *
+     * @see ExtractedFileCache
+     */
+    private static final String CACHE_EXTRACTED_FILES_CLI_SWITCH = "--cacheExtractedFiles";
+
+    /**
+     * Flag to update the webroot with only the entries that changed in the WAR, instead of letting Winstone expand it again.
+     *
+     * @see WebrootSynchronizer
+     */
+    private static final String INCREMENTAL_WEBROOT_CLI_SWITCH = "--incrementalWebroot";
+
+    /**
+     * Flag to load Winstone straight from the WAR instead of extracting {@code winstone.jar} to disk.
+     *
+     * @see NestedJarClassLoader
+     */
+    private static final String LOAD_WINSTONE_FROM_WAR_CLI_SWITCH = "--loadWinstoneFromWar";
+
+    /**
+     * Option to time the phases of the startup and write a report to the given file.
+     *
+     * @see StartupProfile
+     */
+    private static final String STARTUP_PROFILE_CLI_SWITCH = "--startupProfile=";
+
+    /**
+     * Flag to run Jenkins in a child JVM that uses a class data sharing archive recorded by a previous run.
+     *
+     * @see ClassDataSharing
+     */
+    private static final String CLASS_DATA_SHARING_CLI_SWITCH = "--classDataSharing";
+
+    /**
+     * Option to run Jenkins in a child JVM with the heap, garbage collector and other settings picked for the
+     * CPUs and memory of the container, by the given profile or the default one.
+     *
+     * @see JvmTuning
+     */
+    private static final String TUNED_CLI_SWITCH = "--tuned";
+
+    /**
+     * Option to stand by, ready to run Winstone, while the HTTP port is taken by another Jenkins, which
+     * hands it over through the given loopback control port when it exits.
+     *
+     * @see WarmStandby
+     */
+    private static final String WARM_STANDBY_CLI_SWITCH = "--warmStandby=";
+
+    /**
+     * Flag to share {@code winstone.jar} and the files of the webroot with the other Jenkins instances of the host,
+     * through a store next to the extracted files.
+     *
+     * @see SharedExtractionStore
+     */
+    private static final String SHARED_EXTRACTION_CLI_SWITCH = "--sharedExtraction";
+
+    /**
+     * Flag to only extract {@code winstone.jar} and the webroot and exit, for later starts to use them as they are,
+     * like when building a container image.
+     *
+     * @see ExtractionManifest
+     */
+    private static final String EXTRACT_ONLY_CLI_SWITCH = "--extractOnly";
+
+    /**
+     * Flag to load Winstone from the extracted {@code winstone.jar} with an indexed, parallel capable class loader.
+     *
+     * @see NestedJarClassLoader
+     */
+    private static final String INDEXED_CLASS_LOADER_CLI_SWITCH = "--indexedClassLoader";
+
+    /**
+     * Flag to load the classes the previous start of Winstone loaded on background threads.
+     *
+     * @see ClassPreloader
+     */
+    private static final String PRELOAD_CLASSES_CLI_SWITCH = "--preloadClasses";
+
     public static void main(String[] args) throws IllegalAccessException {
         try {
             String v = System.getProperty("java.class.version");
@@ -172,11 +256,13 @@ public class Main {
             value = {"PATH_TRAVERSAL_IN", "THROWS_METHOD_THROWS_RUNTIMEEXCEPTION"},
             justification = "User provided values for running the program and intentional propagation of reflection errors")
     private static void _main(String[] args) throws IllegalAccessException {
+        StartupProfile profile = new StartupProfile();
         //Allows to pass arguments through stdin to "hide" sensitive parameters like httpsKeyStorePassword
         //to achieve this use --paramsFromStdIn
+        String argsInStdIn = null;
         if (hasArgument("--paramsFromStdIn", args)) {
             System.out.println("--paramsFromStdIn detected. Parameters are going to be read from stdin. Other parameters passed directly will be ignored.");
-            String argsInStdIn = readStringNonBlocking(System.in, 131072).trim();
+            argsInStdIn = readStringNonBlocking(System.in, 131072).trim();
             args = argsInStdIn.split(" +");
         }
         // If someone just wants to know the version, print it out as soon as possible, with no extraneous file or webroot info.
@@ -186,6 +272,9 @@ public class Main {
             System.out.println(getVersion("?"));
             return;
         }
+        // the phases are also emitted to a flight recording, without a report
+        profile.enable(hasOption(arguments, STARTUP_PROFILE_CLI_SWITCH)
+                ? new File(getOption(arguments, STARTUP_PROFILE_CLI_SWITCH)) : null, "arguments");
 
         File extractedFilesFolder = null;
         for (String arg : args) {
@@ -197,13 +286,21 @@ public class Main {
                 }
             }
         }
+        if (extractedFilesFolder == null && hasArgument(EXTRACT_ONLY_CLI_SWITCH, args)) {
+            throw new IllegalArgumentException(EXTRACT_ONLY_CLI_SWITCH + " needs an --extractedFilesFolder, later starts only look for what it extracted there");
+        }
+
+        // relaunch before anything else is done, the child does it all again
+        String tunedProfile = getTunedProfile(args);
+        if ((tunedProfile != null || hasArgument(CLASS_DATA_SHARING_CLI_SWITCH, args)) && !ChildJvm.isChild()) {
+            runInChildJvm(args, argsInStdIn, extractedFilesFolder, tunedProfile);
+        }
 
         // if the output should be redirect to a file, do it now
+        File logFile = null;
         for (int i = 0; i < args.length; i++) {
             if (args[i].startsWith("--logfile=")) {
-                PrintStream ps = createLogFileStream(new File(args[i].substring("--logfile=".length())));
-                System.setOut(ps);
-                System.setErr(ps);
+                logFile = new File(args[i].substring("--logfile=".length()));
                 // don't let winstone see this
                 List<String> _args = new ArrayList<>(Arrays.asList(args));
                 _args.remove(i);
@@ -211,6 +308,22 @@ public class Main {
                 break;
             }
         }
+        LogFileOptions logFileOptions = LogFileOptions.parse(args);
+        File outFile = logFileOptions.out != null ? logFileOptions.out : logFile;
+        File errFile = logFileOptions.err != null ? logFileOptions.err : logFile;
+        if (outFile != null && outFile.equals(errFile)) {
+            PrintStream ps = createLogFileStream(outFile, logFileOptions);
+            System.setOut(ps);
+            System.setErr(ps);
+        } else {
+            // each with its own writer, so that a noisy stdout does not hold up stderr
+            if (outFile != null) {
+                System.setOut(createLogFileStream(outFile, logFileOptions));
+            }
+            if (errFile != null) {
+                System.setErr(createLogFileStream(errFile, logFileOptions));
+            }
+        }
         for (String arg : args) {
             if (arg.startsWith("--pluginroot=")) {
                 System.setProperty("hudson.PluginManager.workDir",
@@ -223,9 +336,12 @@ public class Main {
         // this is so that JFreeChart can work nicely even if we are launched as a daemon
         System.setProperty("java.awt.headless", "true");
 
-        File me = whoAmI(extractedFilesFolder);
+        profile.phase("whoAmI");
+        File me = whoAmI(extractedFilesFolder, hasArgument(CACHE_EXTRACTED_FILES_CLI_SWITCH, args));
         System.out.println("Running from: " + me);
         System.setProperty("executable-war", me.getAbsolutePath());  // remember the location so that we can access it from within webapp
+        // index the WAR once for everything that needs to look into it
+        ZipIndex war = openWar(me);
 
         // figure out the arguments
         trimOffOurOptions(arguments);
@@ -238,36 +354,90 @@ public class Main {
             arguments.add("--webroot=" + new File(describedHomeDir.file, "war"));
         }
 
-        // only do a cleanup if you set the extractedFilesFolder property.
-        if (extractedFilesFolder != null) {
-            deleteContentsFromFolder(extractedFilesFolder, "winstone.*\\.jar");
+        // put winstone jar in a file system so that we can load jars from there,
+        // unless we can load it straight from the WAR
+        profile.phase("extractFromJar");
+        boolean extractOnly = hasArgument(EXTRACT_ONLY_CLI_SWITCH, args);
+        File webroot = new File(getOption(arguments, "--webroot="));
+        // what --extractOnly extracted before is used as it is, without even cleaning up
+        // and only from a folder given explicitly, never from the shared temporary directory
+        File preparedJar = extractOnly || extractedFilesFolder == null ? null : ExtractionManifest.read(extractedFilesFolder, me, webroot);
+        ByteBuffer winstoneJar = null;
+        // class data sharing needs the classes to come from a file that stays in place
+        boolean classDataSharing = hasArgument(CLASS_DATA_SHARING_CLI_SWITCH, args);
+        if (hasArgument(LOAD_WINSTONE_FROM_WAR_CLI_SWITCH, args) && !classDataSharing && !extractOnly && preparedJar == null) {
+            winstoneJar = readFromJar(war, "winstone.jar");
+        }
+        File tmpJar = preparedJar;
+        SharedExtractionStore store = null;
+        if (hasArgument(SHARED_EXTRACTION_CLI_SWITCH, args) && war != null && preparedJar == null) {
+            store = openSharedExtractionStore(war, extractedFilesFolder);
+            if (store != null && winstoneJar == null) {
+                tmpJar = extractSharedFromJar(store, war, "winstone.jar");
+            }
+        }
+        if (winstoneJar == null && tmpJar == null && (hasArgument(CACHE_EXTRACTED_FILES_CLI_SWITCH, args) || classDataSharing || extractOnly)) {
+            tmpJar = extractCachedFromJar(war, "winstone.jar", "winstone", ".jar", extractedFilesFolder);
+        }
+        if (winstoneJar == null && tmpJar == null) {
+            // only do a cleanup if you set the extractedFilesFolder property.
+            if (extractedFilesFolder != null) {
+                deleteContentsFromFolder(extractedFilesFolder, "winstone.*\\.jar");
+            }
+            tmpJar = extractFromJar(war, "winstone.jar", "winstone", ".jar", extractedFilesFolder);
+            tmpJar.deleteOnExit();
         }
 
-        // put winstone jar in a file system so that we can load jars from there
-        File tmpJar = extractFromJar("winstone.jar", "winstone", ".jar", extractedFilesFolder);
-        tmpJar.deleteOnExit();
-
-        // clean up any previously extracted copy, since
-        // winstone doesn't do so and that causes problems when newer version of Jenkins
-        // is deployed.
-        File tempFile;
+        // create the Winstone class loader, so that classes can be preloaded in the background from now on
+        profile.phase("classLoader");
+        ClassPreloader preloader = null;
+        if (hasArgument(PRELOAD_CLASSES_CLI_SWITCH, args) && war != null) {
+            try {
+                preloader = new ClassPreloader(war, "winstone.jar", "winstone", ExtractedFileCache.defaultDirectory(extractedFilesFolder));
+                // only do a cleanup if you set the extractedFilesFolder property.
+                if (extractedFilesFolder != null) {
+                    preloader.deleteStale();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the classes to preload, not preloading them", e);
+            }
+        }
+        ClassLoader cl;
         try {
-            tempFile = File.createTempFile("dummy", "dummy");
+            if (winstoneJar != null) {
+                cl = new NestedJarClassLoader(winstoneJar, me.toURI().toURL(), ClassLoader.getSystemClassLoader());
+            } else if (hasArgument(INDEXED_CLASS_LOADER_CLI_SWITCH, args) && !classDataSharing) {
+                cl = new NestedJarClassLoader(tmpJar, ClassLoader.getSystemClassLoader());
+            } else if (preloader != null && !classDataSharing) {
+                cl = new ClassPreloader.RecordingURLClassLoader(new URL[] {tmpJar.toURI().toURL()}, preloader.recorder());
+            } else {
+                cl = new URLClassLoader(new URL[] {tmpJar.toURI().toURL()});
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-        deleteWinstoneTempContents(new File(tempFile.getParent(), "winstone/" + me.getName()));
-        if (!tempFile.delete()) {
-            LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tempFile);
+        if (preloader != null) {
+            if (cl instanceof NestedJarClassLoader) {
+                ((NestedJarClassLoader) cl).recordClasses(preloader.recorder());
+            }
+            preloader.start(cl);
         }
 
-        // locate the Winstone launcher
-        ClassLoader cl;
-        try {
-            cl = new URLClassLoader(new URL[] {tmpJar.toURI().toURL()});
-        } catch (MalformedURLException e) {
-            throw new UncheckedIOException(e);
+        if (extractOnly) {
+            prepareOnly(me, war, store, tmpJar, webroot, extractedFilesFolder, profile);
+            return;
+        }
+
+        // a standby leaves the files of the running Jenkins alone until it takes over;
+        // the option is only in args, as it was trimmed off the arguments
+        WarmStandby standby = createWarmStandby(Arrays.asList(args));
+        boolean standingBy = standby != null && standby.isPortInUse();
+        if (!standingBy && preparedJar == null) {
+            prepareFiles(me, war, store, arguments, args, profile);
         }
+
+        // locate the Winstone launcher
+        profile.phase("loadClass");
         Class<?> launcher;
         Method mainMethod;
         try {
@@ -278,24 +448,63 @@ public class Main {
         }
 
         // override the usage screen
+        profile.phase("getVersion");
+        String version = getVersion(war, "");
         Field usage;
         try {
             usage = launcher.getField("USAGE");
         } catch (NoSuchFieldException e) {
             throw new AssertionError(e);
         }
-        usage.set(null, "Jenkins Automation Server Engine " + getVersion("") + "\n" +
+        usage.set(null, "Jenkins Automation Server Engine " + version + "\n" +
                 "Usage: java -jar jenkins.war [--option=value] [--option=value]\n" +
                 "\n" +
                 "Options:\n" +
                 "   --webroot                = folder where the WAR file is expanded into. Default is ${JENKINS_HOME}/war\n" +
                 "   --pluginroot             = folder where the plugin archives are expanded into. Default is ${JENKINS_HOME}/plugins\n" +
                 "                              (NOTE: this option does not change the directory where the plugin archives are stored)\n" +
-                "   --extractedFilesFolder   = folder where extracted files are to be located. Default is the temp folder\n" +
+                "   --extractedFilesFolder   = folder where extracted files are to be located. Default is the temp folder, or a folder\n" +
+                "                              of it private to the user for the files kept across restarts\n" +
                 "   --logfile                = redirect log messages to this file\n" +
+                "   --logfile.out            = redirect stdout to this file instead of --logfile\n" +
+                "   --logfile.err            = redirect stderr to this file instead of --logfile\n" +
+                "   --logfile.markers        = start each line with a sequence number and a time stamp, to merge the two back in order\n" +
+                "   --logfile.async          = queue log messages and write them on a background thread. When the buffer is full,\n" +
+                "                              writers block, drop the messages or write them themselves (block, drop or spill)\n" +
+                "   --logfile.bufferSize     = size of the buffer of --logfile.async. Default is 1m\n" +
+                "   --logfile.rotateSize     = rotate the log file before it gets larger than this size, like 100m\n" +
+                "   --logfile.rotateEvery    = rotate the log file when it gets older than this, like 12h or 1d\n" +
+                "   --logfile.keep           = number of rotated log files to keep, compressed. Default is 5\n" +
+                "   --logfile.segmentSize    = write the log file through memory-mapped segments of this size, like 64m\n" +
+                "   --logfile.msync          = when to force these segments to the disk: none (the default), segment or interval=<duration>\n" +
+                "   --logfile.gzip           = gzip the log file as it is written, on the thread of --logfile.async which it turns on\n" +
+                "   --logfile.gzipFlush      = most time between flushes of the compressed log file, to read it while written. Default is 1s\n" +
+                "   --logfile.groupCommit    = write the lines logged by all threads together, collecting them for this long, like 2ms\n" +
+                "   --logfile.durability     = when to force the log file to the disk: none (the default), every-batch or interval=<duration>\n" +
+                "   --logfile.metrics        = expose the throughput, latency, reopens and size of the log file as an MBean\n" +
+                "   --logfile.metricsFile    = also write these metrics to this file in the Prometheus text format,\n" +
+                "                              every --logfile.metricsInterval. Default is 15s\n" +
+                "   " + CACHE_EXTRACTED_FILES_CLI_SWITCH + "    = reuse the extracted winstone.jar across restarts instead of extracting it every time\n" +
+                "   " + INCREMENTAL_WEBROOT_CLI_SWITCH + "     = only write the files that changed in the WAR to the webroot on upgrades\n" +
+                "   " + LOAD_WINSTONE_FROM_WAR_CLI_SWITCH + "    = load Winstone straight from the WAR instead of extracting winstone.jar\n" +
+                "   --startupProfile         = write the time spent in each phase of the startup to this file as JSON\n" +
+                "   " + INDEXED_CLASS_LOADER_CLI_SWITCH + "     = load Winstone with a class loader that indexes winstone.jar and loads classes in parallel\n" +
+                "   " + PRELOAD_CLASSES_CLI_SWITCH + "         = load the classes the previous start loaded on background threads\n" +
+                "   " + CLASS_DATA_SHARING_CLI_SWITCH + "       = start faster by sharing the class data recorded by the previous run (Java 13 and above)\n" +
+                "   " + TUNED_CLI_SWITCH + "                  = run in a child JVM with heap, GC, code cache and metaspace settings picked for the\n" +
+                "                              CPU and memory limits of the container, by the profile balanced (the default),\n" +
+                "                              throughput or small, like --tuned=throughput\n" +
+                "   " + EXTRACT_ONLY_CLI_SWITCH + "            = only extract winstone.jar and the webroot into the extractedFilesFolder, and exit;\n" +
+                "                              later starts by the same user with the same extractedFilesFolder and webroot use them\n" +
+                "                              as they are, without extracting or cleaning up\n" +
+                "   " + SHARED_EXTRACTION_CLI_SWITCH + "       = share winstone.jar and the files of the webroot with the other Jenkins\n" +
+                "                              instances of the host, keeping them once under the extractedFilesFolder\n" +
+                "   --warmStandby            = while the HTTP port is taken by another Jenkins, get ready to start and wait for it to\n" +
+                "                              exit and hand the port over through this loopback control port, like --warmStandby=8079\n" +
                 "   " + ENABLE_FUTURE_JAVA_CLI_SWITCH + "     = allows running with new Java versions which are not fully supported (class version " + MINIMUM_JAVA_CLASS_VERSION + " and above)\n" +
                 "{OPTIONS}");
 
+        profile.phase("sessionCookie");
         if (!DISABLE_CUSTOM_JSESSIONID_COOKIE_NAME) {
             /*
              Set an unique cookie name.
@@ -326,10 +535,44 @@ public class Main {
             }
         }
 
+        if (standingBy) {
+            profile.phase("standby");
+            if (store != null) {
+                // let other instances collect garbage meanwhile
+                store.release();
+            }
+            try {
+                standby.await();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (preparedJar == null) {
+                prepareFiles(me, war, store, arguments, args, profile);
+            }
+        }
+        if (standby != null) {
+            standby.handOverOnExit();
+        }
+
+        if (war != null) {
+            try {
+                war.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close " + me, e);
+            }
+        }
+
         // run
+        profile.phase("Launcher.main");
         Thread.currentThread().setContextClassLoader(cl);
         try {
             mainMethod.invoke(null, new Object[] {arguments.toArray(new String[0])});
+            if (preloader != null) {
+                preloader.save();
+            }
         } catch (InvocationTargetException e) {
             Throwable t = e.getCause();
             if (t instanceof RuntimeException) {
@@ -343,18 +586,175 @@ public class Main {
             } else {
                 throw new RuntimeException(e);
             }
+        } finally {
+            profile.finish(version);
+        }
+    }
+
+    /**
+     * Cleans up the files Winstone left behind and updates the webroot, which must not be done while
+     * another Jenkins still uses them.
+     */
+    private static void prepareFiles(File me, ZipIndex war, SharedExtractionStore store, List<String> arguments, String[] args, StartupProfile profile) {
+        // clean up any previously extracted copy, since
+        // winstone doesn't do so and that causes problems when newer version of Jenkins
+        // is deployed.
+        profile.phase("cleanup");
+        File tempFile;
+        try {
+            tempFile = File.createTempFile("dummy", "dummy");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        File winstoneTempDir = new File(tempFile.getParent(), "winstone");
+        Janitor.collectTombstones(winstoneTempDir);
+        deleteWinstoneTempContents(new File(winstoneTempDir, me.getName()));
+        if (!tempFile.delete()) {
+            LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tempFile);
+        }
+
+        // the webroot can only share the files of the store if it is synchronized with the WAR
+        if (hasArgument(INCREMENTAL_WEBROOT_CLI_SWITCH, args) || store != null) {
+            profile.phase("webroot");
+            File webroot = new File(getOption(arguments, "--webroot="));
+            try {
+                new WebrootSynchronizer(me, war, webroot, store).synchronize();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to synchronize the webroot " + webroot + ", letting Winstone expand it", e);
+            }
+        }
+        if (store != null) {
+            store.release();
+            store.collectGarbageLater();
+        }
+    }
+
+    /**
+     * Synchronizes the webroot with the WAR and records what was extracted, for {@link #EXTRACT_ONLY_CLI_SWITCH}.
+     */
+    private static void prepareOnly(File me, ZipIndex war, SharedExtractionStore store, File winstoneJar, File webroot,
+                                    File extractedFilesFolder, StartupProfile profile) {
+        if (war == null || winstoneJar == null) {
+            throw new IllegalStateException("Failed to extract winstone.jar from " + me);
+        }
+        profile.phase("webroot");
+        try {
+            new WebrootSynchronizer(me, war, webroot, store).synchronize();
+            if (store != null) {
+                store.release();
+            }
+            ExtractionManifest.write(extractedFilesFolder, me, winstoneJar, webroot);
+            profile.finish(getVersion(war, ""));
+            war.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("Extracted " + winstoneJar + " and the webroot " + webroot + ", not starting Jenkins");
+    }
+
+    /**
+     * The standby for {@link #WARM_STANDBY_CLI_SWITCH}, or {@code null} if not asked for.
+     */
+    private static WarmStandby createWarmStandby(List<String> arguments) {
+        if (!hasOption(arguments, WARM_STANDBY_CLI_SWITCH)) {
+            return null;
+        }
+        try {
+            int controlPort = Integer.parseInt(getOption(arguments, WARM_STANDBY_CLI_SWITCH));
+            // the same defaults as Winstone
+            int port = hasOption(arguments, "--httpPort=") ? Integer.parseInt(getOption(arguments, "--httpPort=")) : 8080;
+            if (port <= 0 && hasOption(arguments, "--httpsPort=")) {
+                port = Integer.parseInt(getOption(arguments, "--httpsPort="));
+            }
+            if (port <= 0 || controlPort <= 0) {
+                LOGGER.log(Level.WARNING, "A warm standby needs a fixed HTTP or HTTPS port and control port, ignoring " + WARM_STANDBY_CLI_SWITCH);
+                return null;
+            }
+            return new WarmStandby(controlPort, port);
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Invalid port, ignoring " + WARM_STANDBY_CLI_SWITCH, e);
+            return null;
         }
     }
 
+    /**
+     * The profile given with {@link #TUNED_CLI_SWITCH}, empty for the default one, or {@code null} if not tuned.
+     */
+    private static String getTunedProfile(String[] args) {
+        for (String arg : args) {
+            if (arg.equals(TUNED_CLI_SWITCH)) {
+                return "";
+            }
+            if (arg.startsWith(TUNED_CLI_SWITCH + "=")) {
+                return arg.substring(TUNED_CLI_SWITCH.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs Jenkins in a child JVM that is tuned or uses a class data sharing archive, and exits with its status.
+     * Returns if that is not possible, to run Jenkins in this JVM instead.
+     */
+    @SuppressFBWarnings(value = "DM_EXIT", justification = "The launcher only passes on the exit status of the child.")
+    private static void runInChildJvm(String[] args, String argsInStdIn, File extractedFilesFolder, String tunedProfile) {
+        ChildJvm child = new ChildJvm();
+        boolean tuned = false;
+        if (tunedProfile != null) {
+            try {
+                JvmTuning.Profile profile = JvmTuning.Profile.of(tunedProfile);
+                CgroupLimits limits = CgroupLimits.detect();
+                List<String> options = JvmTuning.options(profile, limits, child.jvmOptions());
+                LOGGER.log(Level.INFO, "Starting a JVM tuned for {0} ({1}) with {2}",
+                        new Object[] {profile.name().toLowerCase(Locale.ENGLISH), limits, options});
+                options.forEach(child::jvmOption);
+                tuned = true;
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Unknown profile {0}, ignoring " + TUNED_CLI_SWITCH, tunedProfile);
+            }
+        }
+        ClassDataSharing cds = null;
+        if (hasArgument(CLASS_DATA_SHARING_CLI_SWITCH, args)) {
+            File war = new File(System.getProperty("java.class.path"));
+            if (!ClassDataSharing.isSupported()) {
+                LOGGER.log(Level.WARNING, "Class data sharing archives can only be recorded on Java 13 and above, ignoring " + CLASS_DATA_SHARING_CLI_SWITCH);
+            } else if (!war.isFile()) {
+                LOGGER.log(Level.WARNING, "Class data sharing needs Jenkins to be started with java -jar, ignoring " + CLASS_DATA_SHARING_CLI_SWITCH);
+            } else {
+                try {
+                    cds = new ClassDataSharing(child, war, getVersion("unknown"), ExtractedFileCache.defaultDirectory(extractedFilesFolder));
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to start with class data sharing, starting without it", e);
+                }
+            }
+        }
+        if (cds == null && !tuned) {
+            return;
+        }
+        int status;
+        try {
+            // with --paramsFromStdIn, the child reads the same parameters from its standard input
+            List<String> childArgs = argsInStdIn != null ? Collections.singletonList("--paramsFromStdIn") : Arrays.asList(args);
+            status = cds != null ? cds.run(childArgs, argsInStdIn) : child.run(childArgs, argsInStdIn);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to start the child JVM, starting in this one", e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 1;
+        }
+        System.exit(status);
+    }
+
     @SuppressFBWarnings(value = "DM_DEFAULT_ENCODING", justification = "--logfile relies on the default encoding, fine")
-    private static PrintStream createLogFileStream(File file) {
+    private static PrintStream createLogFileStream(File file, LogFileOptions options) {
         LogFileOutputStream los;
         try {
-            los = new LogFileOutputStream(file);
-        } catch (FileNotFoundException e) {
+            los = new LogFileOutputStream(file, options);
+        } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
-        return new PrintStream(los);
+        return new PrintStream(options.markers ? new LineMarkingOutputStream(los) : los);
     }
 
     // TODO: Get rid of FB warning after updating to Java 7
@@ -379,13 +779,28 @@ public class Main {
 
     private static void trimOffOurOptions(List<String> arguments) {
         arguments.removeIf(arg -> arg.startsWith("--daemon") || arg.startsWith("--logfile") || arg.startsWith("--extractedFilesFolder")
-                || arg.startsWith("--pluginroot") || arg.startsWith(ENABLE_FUTURE_JAVA_CLI_SWITCH));
+                || arg.startsWith("--pluginroot") || arg.startsWith(ENABLE_FUTURE_JAVA_CLI_SWITCH)
+                || arg.startsWith(CACHE_EXTRACTED_FILES_CLI_SWITCH) || arg.startsWith(INCREMENTAL_WEBROOT_CLI_SWITCH)
+                || arg.startsWith(LOAD_WINSTONE_FROM_WAR_CLI_SWITCH) || arg.startsWith(STARTUP_PROFILE_CLI_SWITCH)
+                || arg.startsWith(CLASS_DATA_SHARING_CLI_SWITCH) || arg.startsWith(INDEXED_CLASS_LOADER_CLI_SWITCH)
+                || arg.startsWith(PRELOAD_CLASSES_CLI_SWITCH) || arg.startsWith(TUNED_CLI_SWITCH)
+                || arg.startsWith(WARM_STANDBY_CLI_SWITCH) || arg.startsWith(SHARED_EXTRACTION_CLI_SWITCH)
+                || arg.startsWith(EXTRACT_ONLY_CLI_SWITCH));
     }
 
     /**
      * Figures out the version from the manifest.
      */
     private static String getVersion(String fallback) {
+        File war = codeSourceFile();
+        if (war != null) {
+            // only read the WAR's own manifest, rather than every manifest on the class path
+            try (ZipIndex index = ZipIndex.open(war)) {
+                return getVersion(index, fallback);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to read the manifest of " + war, e);
+            }
+        }
       try {
         Enumeration<URL> manifests = Main.class.getClassLoader().getResources("META-INF/MANIFEST.MF");
         while (manifests.hasMoreElements()) {
@@ -402,6 +817,54 @@ public class Main {
       return fallback;
     }
 
+    /**
+     * Figures out the version from the manifest of the indexed WAR.
+     */
+    private static String getVersion(ZipIndex war, String fallback) {
+        if (war == null) {
+            return getVersion(fallback);
+        }
+        try {
+            Manifest manifest = war.manifest();
+            String v = manifest != null ? manifest.getMainAttributes().getValue("Jenkins-Version") : null;
+            return v != null ? v : fallback;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the file this class was loaded from, if it is a local file.
+     */
+    private static File codeSourceFile() {
+        try {
+            URL location = Main.class.getProtectionDomain().getCodeSource().getLocation();
+            if ("file".equals(location.getProtocol())) {
+                File file = new File(location.toURI());
+                if (file.isFile()) {
+                    return file;
+                }
+            }
+        } catch (URISyntaxException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Failed to locate the code source", e);
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the WAR.
+     *
+     * @return the index, or {@code null} if the WAR cannot be indexed and its contents should be read as resources
+     */
+    private static ZipIndex openWar(File war) {
+        try {
+            return ZipIndex.open(war);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to index " + war + ", reading its contents as resources", e);
+            return null;
+        }
+    }
+
     private static boolean hasOption(List<String> args, String prefix) {
         for (String s : args) {
             if (s.startsWith(prefix)) {
@@ -411,16 +874,39 @@ public class Main {
         return false;
     }
 
+    private static String getOption(List<String> args, String prefix) {
+        for (String s : args) {
+            if (s.startsWith(prefix)) {
+                return s.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
     /**
      * Figures out the URL of {@code jenkins.war}.
      */
-    @SuppressFBWarnings(value = {"PATH_TRAVERSAL_IN", "URLCONNECTION_SSRF_FD"}, justification = "User provided values for running the program.")
     public static File whoAmI(File directory) {
+        return whoAmI(directory, false);
+    }
+
+    /**
+     * Figures out the URL of {@code jenkins.war}.
+     *
+     * @param cache whether to keep the copy made when the WAR cannot be used where it is across restarts
+     */
+    @SuppressFBWarnings(value = {"PATH_TRAVERSAL_IN", "URLCONNECTION_SSRF_FD"}, justification = "User provided values for running the program.")
+    private static File whoAmI(File directory, boolean cache) {
         // JNLP returns the URL where the jar was originally placed (like http://jenkins-ci.org/...)
         // not the local cached file. So we need a rather round about approach to get to
         // the local file name.
         // There is no portable way to find where the locally cached copy
         // of jenkins.war/jar is; JDK 6 is too smart. (See JENKINS-2326.)
+        // When the code source is a local file, though, there is no need to open the WAR to find out.
+        File codeSource = codeSourceFile();
+        if (codeSource != null) {
+            return codeSource;
+        }
         try {
             URL classFile = Main.class.getClassLoader().getResource("Main.class");
             JarFile jf = ((JarURLConnection) classFile.openConnection()).getJarFile();
@@ -428,6 +914,22 @@ public class Main {
         } catch (Exception x) {
             System.err.println("ZipFile.name trick did not work, using fallback: " + x);
         }
+        URL location = Main.class.getProtectionDomain().getCodeSource().getLocation();
+        if (cache) {
+            try {
+                ExtractedFileCache extractedFileCache = new ExtractedFileCache(ExtractedFileCache.defaultDirectory(directory));
+                File cached = extractedFileCache.copy(location, "jenkins", ".war");
+                if (cached != null) {
+                    // only do a cleanup if you set the extractedFilesFolder property.
+                    if (directory != null) {
+                        extractedFileCache.deleteStale("jenkins", ".war", cached);
+                    }
+                    return cached;
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to use the cached copy of " + location + ", copying it again", e);
+            }
+        }
         File myself;
         try {
             myself = File.createTempFile("jenkins", ".jar", directory);
@@ -435,9 +937,8 @@ public class Main {
             throw new UncheckedIOException(e);
         }
         myself.deleteOnExit();
-        try (InputStream is = Main.class.getProtectionDomain().getCodeSource().getLocation().openStream();
-             OutputStream os = new FileOutputStream(myself)) {
-            copyStream(is, os);
+        try (InputStream is = location.openStream()) {
+            ResourceExtractor.copy(is, myself);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -456,12 +957,7 @@ public class Main {
      * Extract a resource from jar, mark it for deletion upon exit, and return its location.
      */
     @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "User provided values for running the program.")
-    private static File extractFromJar(String resource, String fileName, String suffix, File directory) {
-        URL res = Main.class.getResource(resource);
-        if (res == null) {
-            throw new MissingResourceException("Unable to find the resource: " + resource, Main.class.getName(), resource);
-        }
-
+    private static File extractFromJar(ZipIndex war, String resource, String fileName, String suffix, File directory) {
         // put this jar in a file system so that we can load jars from there
         File tmp;
         try {
@@ -470,6 +966,23 @@ public class Main {
             String tmpdir = directory == null ? System.getProperty("java.io.tmpdir") : directory.getAbsolutePath();
             throw new UncheckedIOException("Jenkins failed to create a temporary file in " + tmpdir + ": " + e, e);
         }
+        ZipIndex.Entry entry = war != null ? war.get(resource) : null;
+        if (entry != null) {
+            try {
+                ResourceExtractor.extract(war, entry, tmp);
+                tmp.deleteOnExit();
+                return tmp;
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to extract " + resource + " from the WAR directly, reading it as a resource", e);
+            }
+        }
+        URL res = Main.class.getResource(resource);
+        if (res == null) {
+            if (!tmp.delete()) {
+                LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tmp);
+            }
+            throw new MissingResourceException("Unable to find the resource: " + resource, Main.class.getName(), resource);
+        }
         try (InputStream is = res.openStream(); OutputStream os = new FileOutputStream(tmp)) {
             copyStream(is, os);
         } catch (IOException e) {
@@ -479,6 +992,79 @@ public class Main {
         return tmp;
     }
 
+    /**
+     * Returns the contents of a resource of the WAR, without writing it to disk.
+     *
+     * @return the contents, or {@code null} if they cannot be read and the resource should be extracted as usual
+     */
+    private static ByteBuffer readFromJar(ZipIndex war, String resource) {
+        if (war == null) {
+            return null;
+        }
+        // not a slice of the mapping, as Jenkins upgrades itself by rewriting the WAR in place
+        try {
+            ZipIndex.Entry entry = war.get(resource);
+            if (entry == null) {
+                throw new IOException("Unable to find " + resource + " in the WAR");
+            }
+            return war.read(entry);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to load " + resource + " from the WAR, extracting it", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a copy of a resource from the WAR that is kept across restarts, extracting it only when
+     * no valid copy exists yet.
+     *
+     * @return the cached copy, or {@code null} if the cache cannot be used and the resource should be extracted as usual
+     */
+    private static File extractCachedFromJar(ZipIndex war, String resource, String fileName, String suffix, File directory) {
+        if (war == null) {
+            return null;
+        }
+        ExtractedFileCache cache;
+        File cached;
+        try {
+            cache = new ExtractedFileCache(ExtractedFileCache.defaultDirectory(directory));
+            cached = cache.extract(war, resource, fileName, suffix);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to use the cached copy of " + resource + ", extracting it again", e);
+            return null;
+        }
+        // only do a cleanup if you set the extractedFilesFolder property.
+        if (directory != null) {
+            cache.deleteStale(fileName, suffix, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Opens the {@link SharedExtractionStore} next to the extracted files, or returns {@code null} if it cannot be used.
+     */
+    private static SharedExtractionStore openSharedExtractionStore(ZipIndex war, File extractedFilesFolder) {
+        try {
+            return SharedExtractionStore.open(new File(ExtractedFileCache.defaultDirectory(extractedFilesFolder), "jenkins-store"), war);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to open the shared extraction store, not sharing extracted files", e);
+            return null;
+        }
+    }
+
+    private static File extractSharedFromJar(SharedExtractionStore store, ZipIndex war, String resource) {
+        ZipIndex.Entry entry = war.get(resource);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return store.get(war, entry);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to use the shared copy of " + resource + ", extracting it again", e);
+            return null;
+        }
+    }
+
     /**
      * Search contents to delete in a folder that match with some patterns.
      *
@@ -486,36 +1072,37 @@ public class Main {
      * @param patterns patterns that identifies the contents to search.
      */
     private static void deleteContentsFromFolder(File folder, final String... patterns) {
+        Janitor.collectTombstones(folder);
         File[] files = folder.listFiles();
 
         if (files != null) {
+            Pattern[] compiled = new Pattern[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                compiled[i] = Pattern.compile(patterns[i]);
+            }
             for (File file : files) {
-                for (String pattern : patterns) {
-                    if (file.getName().matches(pattern)) {
+                for (Pattern pattern : compiled) {
+                    if (pattern.matcher(file.getName()).matches()) {
                         LOGGER.log(Level.FINE, "Deleting the temporary file {0}", file);
                         deleteWinstoneTempContents(file);
+                        break;
                     }
                 }
             }
         }
     }
 
+    /**
+     * Deletes a file, or moves a directory out of the way and deletes it in the background.
+     *
+     * @see Janitor
+     */
     private static void deleteWinstoneTempContents(File file) {
         if (!file.exists()) {
             LOGGER.log(Level.FINEST, "No file found at {0}, nothing to delete.", file);
             return;
         }
-        if (file.isDirectory()) {
-            File[] files = file.listFiles();
-            if (files != null) { // be defensive
-                for (File value : files) {
-                    deleteWinstoneTempContents(value);
-                }
-            }
-        }
-        if (!file.delete()) {
-            LOGGER.log(Level.WARNING, "Failed to delete the temporary Winstone file {0}", file);
-        }
+        Janitor.delete(file);
     }
 
     /** Add some metadata to a File, allowing to trace setup issues */
@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link OutputStream} that appends to a file through memory-mapped segments, so that a write is a
+ * memory copy and not a system call.
+ *
+ * <p>
+ * The file is mapped one segment of a fixed size at a time, past its end. Growing the file through the
+ * mapping would leave it sparse, so that a full disk would only surface as a {@code SIGBUS} on a later
+ * write; instead the segment is first filled with zeros with regular writes, which allocate its blocks and
+ * fail with an {@link IOException} when the disk is full. When a segment is full, the next one is
+ * preallocated and mapped, and if that fails the full segment stays mapped, so that the next write tries
+ * again. Until the stream is closed, the file
+ * therefore ends with the zeros of the unwritten part of the last segment; closing truncates it to
+ * what was written. Zeros left at the end of the file by a stream that was not closed, like when the
+ * JVM crashed, are truncated when it is opened again.
+ *
+ * <p>
+ * The pages written are flushed to the disk by the operating system when it sees fit, unless the
+ * msync policy asks for it: never, when a segment is full or closed, or at most every so many milliseconds.
+ *
+ * <p>
+ * Not thread-safe, {@link LogFileOutputStream} serializes the writes.
+ */
+final class MappedLogOutputStream extends OutputStream {
+
+    /**
+     * Never force the pages to the disk.
+     */
+    static final long MSYNC_NONE = -1;
+
+    /**
+     * Force the pages of a segment to the disk when it is full, and when the stream is closed.
+     */
+    static final long MSYNC_SEGMENT = 0;
+
+    /**
+     * {@code sun.misc.Unsafe.invokeCleaner}, which unmaps a buffer right away on Java 9 and above.
+     */
+    @CheckForNull
+    private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+    private final FileChannel channel;
+    private final int segmentSize;
+
+    /**
+     * What segments are preallocated with.
+     */
+    private final ByteBuffer zeros;
+
+    /**
+     * {@link #MSYNC_NONE}, {@link #MSYNC_SEGMENT}, or the interval between forces in milliseconds.
+     */
+    private final long msync;
+
+    private MappedByteBuffer segment;
+
+    /**
+     * Offset of {@link #segment} in the file.
+     */
+    private long segmentStart;
+
+    private long lastForce = System.currentTimeMillis();
+
+    private boolean closed;
+
+    MappedLogOutputStream(@NonNull File file, int segmentSize, long msync) throws IOException {
+        this.segmentSize = segmentSize;
+        this.msync = msync;
+        this.zeros = ByteBuffer.allocateDirect(Math.min(segmentSize, 64 * 1024));
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean mapped = false;
+        try {
+            map(trimPadding());
+            mapped = true;
+        } finally {
+            if (!mapped) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Truncates the zeros a previous stream may have left at the end of the file.
+     *
+     * @return the size of the file
+     */
+    private long trimPadding() throws IOException {
+        long size = channel.size();
+        long limit = Math.max(0, size - segmentSize);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long end = size;
+        search:
+        while (end > limit) {
+            long start = Math.max(limit, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) != 0) {
+                    end = start + i + 1;
+                    break search;
+                }
+            }
+            end = start;
+        }
+        if (end < size) {
+            channel.truncate(end);
+        }
+        return end;
+    }
+
+    private void map(long position) throws IOException {
+        preallocate(position);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, position, segmentSize);
+        segmentStart = position;
+    }
+
+    /**
+     * Writes zeros from the end of the file to the end of the segment at {@code position}.
+     *
+     * @throws IOException if the disk is full; the zeros written so far are truncated by {@link #close()},
+     *                     or by {@link #trimPadding()} on the next open
+     */
+    private void preallocate(long position) throws IOException {
+        long end = position + segmentSize;
+        long offset = Math.max(position, channel.size());
+        while (offset < end) {
+            zeros.clear().limit((int) Math.min(zeros.capacity(), end - offset));
+            while (zeros.hasRemaining()) {
+                offset += channel.write(zeros, offset);
+            }
+        }
+    }
+
+    /**
+     * Number of bytes written to the file, including those written before it was opened.
+     */
+    long size() {
+        return segmentStart + segment.position();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!segment.hasRemaining()) {
+            roll();
+        }
+        segment.put((byte) b);
+    }
+
+    @Override
+    public void write(@NonNull byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!segment.hasRemaining()) {
+                roll();
+            }
+            int n = Math.min(len, segment.remaining());
+            segment.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+        if (msync > 0) {
+            long now = System.currentTimeMillis();
+            if (now - lastForce >= msync) {
+                segment.force();
+                lastForce = now;
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        long next = size();
+        if (msync != MSYNC_NONE) {
+            segment.force();
+        }
+        // the full segment is only unmapped once the next one is, so that it stays in place if the disk is full
+        MappedByteBuffer full = segment;
+        map(next);
+        unmap(full);
+    }
+
+    /**
+     * Forces the current segment to the disk, whatever the msync policy.
+     */
+    void force() throws IOException {
+        ensureOpen();
+        segment.force();
+        lastForce = System.currentTimeMillis();
+    }
+
+    /**
+     * Does nothing, the bytes written are in the page cache already.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long size = size();
+            if (msync != MSYNC_NONE) {
+                segment.force();
+            }
+            unmap(segment);
+            segment = null;
+            channel.truncate(size);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Unmaps a buffer, which must not be used anymore, rather than waiting for it to be garbage collected,
+     * so that the file can be truncated on Windows and the address space does not fill up with segments.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+            } catch (Throwable e) {
+                // the buffer is unmapped once garbage collected
+            }
+        }
+    }
+
+    @CheckForNull
+    private static MethodHandle findInvokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8
+            return null;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * {@link ClassLoader} that serves the classes and resources of a jar held in a {@link ByteBuffer}
+ * or memory-mapped from a file.
+ *
+ * <p>
+ * This allows loading Winstone straight out of {@code jenkins.war}, without extracting
+ * {@code winstone.jar} to disk first. The jar is read from the WAR into the heap rather than
+ * sliced out of its mapping, as Jenkins upgrades itself by rewriting the WAR in place, which
+ * would make later reads through the mapping fault or see the new bytes.
+ *
+ * <p>
+ * The jar is indexed once, so looking up a class is a hash lookup rather than a search through
+ * {@link java.util.jar.JarFile}, and all of its packages are defined up front. The class loader is
+ * parallel capable, so that the threads Jetty starts can load classes concurrently.
+ *
+ * <p>
+ * Resources of a jar file are exposed as {@code jar:} URLs. Those of a jar held in memory are
+ * exposed as URLs of the {@code nested-jar} protocol, which can only be opened through the URL
+ * instances returned by this class loader.
+ */
+final class NestedJarClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private static final String PROTOCOL = "nested-jar";
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private final ZipIndex jar;
+
+    @CheckForNull
+    private final Manifest manifest;
+
+    /**
+     * Java feature release used to look up entries of multi-release jars, or 8 if the jar is not one.
+     */
+    private final int release;
+
+    private final ProtectionDomain protectionDomain;
+
+    /**
+     * URL of the jar file, or {@code null} if the jar is held in memory.
+     */
+    @CheckForNull
+    private final URL jarFile;
+
+    /**
+     * Where the names of the classes defined are recorded, if anywhere.
+     */
+    @CheckForNull
+    private volatile Collection<String> recorder;
+
+    private final URLStreamHandler handler = new URLStreamHandler() {
+        @Override
+        protected URLConnection openConnection(URL u) throws IOException {
+            String name = u.getPath().substring(1);
+            ZipIndex.Entry entry = jar.get(name);
+            if (entry == null) {
+                throw new IOException("No such entry " + name + " in " + u);
+            }
+            return new URLConnection(u) {
+                @Override
+                public void connect() {
+                    connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return jar.openStream(entry);
+                }
+
+                @Override
+                public long getContentLengthLong() {
+                    return entry.size;
+                }
+            };
+        }
+    };
+
+    /**
+     * @param jar contents of the jar
+     * @param location where the jar comes from, used as the code source of its classes
+     * @param parent the parent class loader
+     */
+    NestedJarClassLoader(@NonNull ByteBuffer jar, @CheckForNull URL location, @CheckForNull ClassLoader parent) throws IOException {
+        this(ZipIndex.of(jar), location, null, parent);
+    }
+
+    /**
+     * @param jar the jar file, which is memory-mapped
+     * @param parent the parent class loader
+     */
+    NestedJarClassLoader(@NonNull File jar, @CheckForNull ClassLoader parent) throws IOException {
+        this(ZipIndex.open(jar), jar.toURI().toURL(), jar.toURI().toURL(), parent);
+    }
+
+    private NestedJarClassLoader(ZipIndex jar, URL location, URL jarFile, ClassLoader parent) throws IOException {
+        super(parent);
+        this.jar = jar;
+        this.jarFile = jarFile;
+        this.manifest = jar.manifest();
+        this.release = manifest != null && Boolean.parseBoolean(manifest.getMainAttributes().getValue("Multi-Release"))
+                ? runtimeRelease() : 8;
+        this.protectionDomain = new ProtectionDomain(new CodeSource(location, (Certificate[]) null), null, this, null);
+        definePackages();
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String path = name.replace('.', '/') + ".class";
+        ZipIndex.Entry entry = lookup(path);
+        if (entry == null) {
+            throw new ClassNotFoundException(name);
+        }
+        ByteBuffer bytes;
+        try {
+            bytes = jar.contents(entry);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            definePackageIfNeeded(name.substring(0, dot));
+        }
+        Class<?> c = defineClass(name, bytes, protectionDomain);
+        Collection<String> recorder = this.recorder;
+        if (recorder != null) {
+            recorder.add(name);
+        }
+        return c;
+    }
+
+    /**
+     * Records the names of the classes defined from now on into {@code recorder}.
+     */
+    void recordClasses(@NonNull Collection<String> recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    protected URL findResource(String name) {
+        ZipIndex.Entry entry = lookup(name);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            if (jarFile != null) {
+                return new URL("jar:" + jarFile + "!/" + entry.name);
+            }
+            return new URL(PROTOCOL, "", -1, "/" + entry.name, handler);
+        } catch (MalformedURLException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) {
+        URL url = findResource(name);
+        return url == null ? Collections.emptyEnumeration() : Collections.enumeration(Collections.singletonList(url));
+    }
+
+    /**
+     * Finds an entry, preferring the version for the running Java release in multi-release jars.
+     */
+    @CheckForNull
+    ZipIndex.Entry lookup(String name) {
+        for (int version = release; version >= 9; version--) {
+            ZipIndex.Entry entry = jar.get(VERSIONS + version + "/" + name);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        ZipIndex.Entry entry = jar.get(name);
+        return entry == null || entry.isDirectory() ? null : entry;
+    }
+
+    /**
+     * Defines the packages of all classes in the jar.
+     */
+    private void definePackages() {
+        Set<String> packages = new HashSet<>();
+        for (ZipIndex.Entry entry : jar.entries()) {
+            String name = entry.name;
+            if (name.startsWith(VERSIONS)) {
+                name = name.substring(name.indexOf('/', VERSIONS.length()) + 1);
+            }
+            int slash = name.lastIndexOf('/');
+            if (slash > 0 && name.endsWith(".class") && !name.startsWith("META-INF/")
+                    && packages.add(name.substring(0, slash))) {
+                definePackageIfNeeded(name.substring(0, slash).replace('/', '.'));
+            }
+        }
+    }
+
+    /**
+     * Defines the package from the jar's manifest, unless it was defined already.
+     */
+    @SuppressWarnings("deprecation") // getPackage is the only option before Java 9
+    void definePackageIfNeeded(String packageName) {
+        if (getPackage(packageName) != null) {
+            return;
+        }
+        Attributes main = manifest != null ? manifest.getMainAttributes() : null;
+        Attributes section = manifest != null ? manifest.getAttributes(packageName.replace('.', '/') + "/") : null;
+        try {
+            definePackage(packageName,
+                    attribute(section, main, Attributes.Name.SPECIFICATION_TITLE),
+                    attribute(section, main, Attributes.Name.SPECIFICATION_VERSION),
+                    attribute(section, main, Attributes.Name.SPECIFICATION_VENDOR),
+                    attribute(section, main, Attributes.Name.IMPLEMENTATION_TITLE),
+                    attribute(section, main, Attributes.Name.IMPLEMENTATION_VERSION),
+                    attribute(section, main, Attributes.Name.IMPLEMENTATION_VENDOR),
+                    null);
+        } catch (IllegalArgumentException e) {
+            // defined concurrently by another thread
+        }
+    }
+
+    private static String attribute(Attributes section, Attributes main, Attributes.Name name) {
+        String value = section != null ? section.getValue(name) : null;
+        return value != null || main == null ? value : main.getValue(name);
+    }
+
+    /**
+     * Returns the feature release of the running Java, like 11 or 17.
+     */
+    static int runtimeRelease() {
+        String version = System.getProperty("java.specification.version", "1.8");
+        try {
+            return version.startsWith("1.") ? 8 : Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+}
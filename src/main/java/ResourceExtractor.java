@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Copies resources out of {@code jenkins.war} into files.
+ *
+ * <p>
+ * Entries that are stored uncompressed are copied straight from the WAR's file region with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the
+ * kernel copy the bytes without bringing them into the heap. Deflated entries are inflated from the
+ * memory-mapped WAR with large buffers. Either way the achieved throughput is logged.
+ */
+final class ResourceExtractor {
+
+    private static final Logger LOGGER = Logger.getLogger(ResourceExtractor.class.getName());
+
+    /**
+     * Size of the buffers used when the data has to go through the heap.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private ResourceExtractor() {}
+
+    /**
+     * Extracts an entry of an indexed archive into {@code target}, replacing its contents.
+     *
+     * @return the number of bytes written
+     */
+    static long extract(@NonNull ZipIndex index, @NonNull ZipIndex.Entry entry, @NonNull File target) throws IOException {
+        long start = System.nanoTime();
+        String how;
+        try (FileChannel out = FileChannel.open(target.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (entry.method == ZipEntry.STORED) {
+                FileChannel in = index.channel();
+                if (in != null) {
+                    transfer(in, index.dataOffset(entry), entry.size, out);
+                    how = "zero-copy";
+                } else {
+                    ByteBuffer data = index.rawData(entry);
+                    while (data.hasRemaining()) {
+                        out.write(data);
+                    }
+                    how = "stored";
+                }
+            } else if (entry.method == ZipEntry.DEFLATED) {
+                inflate(index.rawData(entry), entry, out);
+                how = "inflated";
+            } else {
+                throw new IOException("Unsupported compression method " + entry.method + " for " + entry.name);
+            }
+        }
+        report(entry.name, entry.size, start, how);
+        return entry.size;
+    }
+
+    /**
+     * Copies a stream into {@code target}, replacing its contents.
+     *
+     * @return the number of bytes written
+     */
+    static long copy(@NonNull InputStream in, @NonNull File target) throws IOException {
+        long start = System.nanoTime();
+        long position = 0;
+        try (ReadableByteChannel src = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(target.toPath(),
+                     StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long n;
+            while ((n = out.transferFrom(src, position, BUFFER_SIZE)) > 0) {
+                position += n;
+            }
+        }
+        report(target.getName(), position, start, "copied");
+        return position;
+    }
+
+    /**
+     * Copies a file into {@code target}, replacing its contents.
+     *
+     * @return the number of bytes written
+     */
+    static long copy(@NonNull File source, @NonNull File target) throws IOException {
+        long start = System.nanoTime();
+        long size;
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target.toPath(),
+                     StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            size = in.size();
+            transfer(in, 0, size, out);
+        }
+        report(source.getName(), size, start, "zero-copy");
+        return size;
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = in.transferTo(position + done, count - done, out);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of file after " + done + " of " + count + " bytes");
+            }
+            done += n;
+        }
+    }
+
+    private static void inflate(ByteBuffer data, ZipIndex.Entry entry, FileChannel out) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] input = new byte[(int) Math.min(BUFFER_SIZE, data.remaining() + 1L)];
+            byte[] output = new byte[(int) Math.min(BUFFER_SIZE, Math.max(entry.size, 1))];
+            CRC32 crc = new CRC32();
+            long written = 0;
+            boolean padded = false;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    int n = Math.min(input.length, data.remaining());
+                    if (n > 0) {
+                        data.get(input, 0, n);
+                        inflater.setInput(input, 0, n);
+                    } else if (!padded) {
+                        // the inflater needs an extra byte in "nowrap" mode
+                        padded = true;
+                        input[0] = 0;
+                        inflater.setInput(input, 0, 1);
+                    } else {
+                        throw new IOException("Truncated deflated data for " + entry.name);
+                    }
+                }
+                int n = inflater.inflate(output);
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new IOException("Unsupported preset dictionary for " + entry.name);
+                }
+                crc.update(output, 0, n);
+                ByteBuffer chunk = ByteBuffer.wrap(output, 0, n);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+                written += n;
+            }
+            if (written != entry.size || crc.getValue() != entry.crc) {
+                throw new IOException("Inflated data of " + entry.name + " does not match its size and CRC");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid deflated data for " + entry.name, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void report(String name, long bytes, long start, String how) {
+        StartupProfile.extracted(bytes);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            long nanos = Math.max(System.nanoTime() - start, 1);
+            LOGGER.log(Level.FINE, "Extracted {0} ({1}): {2} bytes in {3} ms, {4} MB/s", new Object[] {
+                    name, how, bytes, nanos / 1_000_000L, String.format("%.1f", bytes * 1e9 / nanos / (1 << 20))});
+        }
+    }
+}
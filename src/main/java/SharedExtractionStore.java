@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A store of the files extracted from WARs, shared by all the Jenkins instances of a host.
+ *
+ * <p>
+ * Each file is kept once in {@code objects}, named after its CRC and size like in {@link ExtractedFileCache},
+ * and made read-only. The instances use {@code winstone.jar} from there, and hard link the files of their
+ * webroot to it, so that the files of instances running the same WAR, and the files that did not change
+ * between versions, take up disk space and page cache once.
+ *
+ * <p>
+ * Each WAR is a version, named after the digest of its central directory, with a list of the objects
+ * it uses in {@code versions}. Every instance holds a shared lock on the lock file of its version for as
+ * long as it runs; as the operating system releases the lock when the process exits, however it exits,
+ * the number of lock holders is the reference count of the version. Once no instance has used a version
+ * for a while, its list is deleted along with the objects no other version uses. Webroots keep their
+ * hard links to these objects, so that nothing an instance uses goes away.
+ *
+ * <p>
+ * Instances add to the store while holding a shared lock on {@code store.lock}, and garbage is collected
+ * while holding an exclusive one, so that it is only collected while no instance is starting.
+ *
+ * <p>
+ * As {@code winstone.jar} is run from the store, the store is only used when its directories belong to
+ * the current user and no other user can write to them. An object is only reused when it belongs to the
+ * current user and matches the CRC of the entry, and is extracted again otherwise.
+ */
+final class SharedExtractionStore {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedExtractionStore.class.getName());
+
+    /**
+     * How long, in milliseconds, a version nobody uses is kept, for instances that are restarting.
+     */
+    private static final long RETENTION = Long.getLong("executableWar.sharedStore.retention", 60 * 60 * 1000);
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * The locks of the versions used by this JVM, which are held until it exits.
+     */
+    private static final Map<File, FileLock> VERSION_LOCKS = new ConcurrentHashMap<>();
+
+    private final File objects;
+    private final File versions;
+    private final File manifest;
+    private final FileChannel storeLockChannel;
+    private FileLock storeLock;
+    private final Set<String> recorded = new HashSet<>();
+
+    private SharedExtractionStore(File objects, File versions, File manifest, FileChannel storeLockChannel, FileLock storeLock) {
+        this.objects = objects;
+        this.versions = versions;
+        this.manifest = manifest;
+        this.storeLockChannel = storeLockChannel;
+        this.storeLock = storeLock;
+    }
+
+    /**
+     * Starts using the store for a WAR, which is then referenced until this JVM exits.
+     *
+     * @param directory where the store is, created if needed
+     */
+    @NonNull
+    static SharedExtractionStore open(@NonNull File directory, @NonNull ZipIndex war) throws IOException {
+        File objects = new File(directory, "objects");
+        File versions = new File(directory, "versions");
+        Files.createDirectories(objects.toPath());
+        Files.createDirectories(versions.toPath());
+        for (File dir : new File[] {directory, objects, versions}) {
+            ExtractedFileCache.checkNotWritableByOthers(dir);
+        }
+        FileChannel storeLockChannel = FileChannel.open(new File(directory, "store" + LOCK_SUFFIX).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock storeLock = storeLockChannel.lock(0, Long.MAX_VALUE, true);
+            String version = war.centralDirectoryDigest().substring(0, 16);
+            File lockFile = new File(versions, version + LOCK_SUFFIX);
+            synchronized (VERSION_LOCKS) {
+                if (!VERSION_LOCKS.containsKey(lockFile)) {
+                    FileChannel versionLockChannel = FileChannel.open(lockFile.toPath(),
+                            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    try {
+                        VERSION_LOCKS.put(lockFile, versionLockChannel.lock(0, Long.MAX_VALUE, true));
+                    } catch (IOException | RuntimeException e) {
+                        versionLockChannel.close();
+                        throw e;
+                    }
+                }
+            }
+            // tells the garbage collector when the version was last used
+            if (!lockFile.setLastModified(System.currentTimeMillis())) {
+                LOGGER.log(Level.FINE, "Failed to touch the lock file of version {0}", version);
+            }
+            File manifest = new File(versions, version);
+            SharedExtractionStore store = new SharedExtractionStore(objects, versions, manifest, storeLockChannel, storeLock);
+            if (manifest.exists() && !ExtractedFileCache.isOwnedByCurrentUser(manifest)) {
+                throw new IOException(manifest + " is not owned by " + System.getProperty("user.name"));
+            }
+            if (manifest.isFile()) {
+                store.recorded.addAll(Files.readAllLines(manifest.toPath(), StandardCharsets.US_ASCII));
+            }
+            return store;
+        } catch (IOException | RuntimeException e) {
+            storeLockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the read-only copy of an entry of the WAR, extracting it only if needed.
+     */
+    @NonNull
+    synchronized File get(@NonNull ZipIndex war, @NonNull ZipIndex.Entry entry) throws IOException {
+        if (storeLock == null) {
+            storeLock = storeLockChannel.lock(0, Long.MAX_VALUE, true);
+        }
+        String name = ExtractedFileCache.cachedFileName("o", "", entry.crc, entry.size);
+        File object = new File(objects, name);
+        if (!ExtractedFileCache.isOwnedByCurrentUser(object) || !ExtractedFileCache.isValid(object, entry.crc, entry.size)) {
+            // concurrent instances extract the same bytes, the last one wins
+            File tmp = File.createTempFile(".object", ".tmp", objects);
+            try {
+                ResourceExtractor.extract(war, entry, tmp);
+                if (!ExtractedFileCache.isValid(tmp, entry.crc, entry.size)) {
+                    throw new IOException("Extracted copy of " + entry.name + " does not match its CRC");
+                }
+                if (!tmp.setReadOnly()) {
+                    LOGGER.log(Level.FINE, "Failed to make {0} read-only", tmp);
+                }
+                ExtractedFileCache.moveAtomically(tmp, object);
+            } finally {
+                if (tmp.exists() && !tmp.delete()) {
+                    LOGGER.log(Level.WARNING, "Failed to delete the temporary file {0}", tmp);
+                }
+            }
+        }
+        if (recorded.add(name)) {
+            // appends of a line are atomic, and duplicates from other instances are harmless
+            Files.write(manifest.toPath(), Collections.singletonList(name), StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return object;
+    }
+
+    /**
+     * Makes {@code target} a hard link to the copy of an entry of the WAR, or a copy of it
+     * when the file system does not support hard links.
+     */
+    void link(@NonNull ZipIndex war, @NonNull ZipIndex.Entry entry, @NonNull File target) throws IOException {
+        File object = get(war, entry);
+        Files.deleteIfExists(target.toPath());
+        try {
+            Files.createLink(target.toPath(), object.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.log(Level.FINE, "Failed to link " + target + " to " + object + ", copying it", e);
+            ResourceExtractor.copy(object, target);
+        }
+    }
+
+    /**
+     * Stops adding files for now, so that garbage can be collected.
+     */
+    synchronized void release() {
+        if (storeLock == null) {
+            return;
+        }
+        try {
+            storeLock.release();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to release the lock of the shared extraction store", e);
+        }
+        storeLock = null;
+    }
+
+    /**
+     * Deletes in the background the versions nobody used for a while and the objects only they used,
+     * unless another instance is adding files.
+     */
+    void collectGarbageLater() {
+        Thread collector = new Thread(this::collectGarbage, "Shared extraction store garbage collector");
+        collector.setDaemon(true);
+        collector.setPriority(Thread.MIN_PRIORITY);
+        collector.start();
+    }
+
+    /**
+     * Deletes the versions nobody used for a while and the objects only they used.
+     */
+    synchronized void collectGarbage() {
+        release();
+        FileLock lock = null;
+        try {
+            lock = storeLockChannel.tryLock(0, Long.MAX_VALUE, false);
+            if (lock == null) {
+                LOGGER.log(Level.FINE, "The shared extraction store is in use, not collecting garbage");
+                return;
+            }
+            File[] lockFiles = versions.listFiles((dir, name) -> name.endsWith(LOCK_SUFFIX));
+            if (lockFiles == null) {
+                return;
+            }
+            Set<String> live = new HashSet<>();
+            List<String> deleted = new ArrayList<>();
+            for (File lockFile : lockFiles) {
+                File versionManifest = new File(versions, lockFile.getName().substring(0, lockFile.getName().length() - LOCK_SUFFIX.length()));
+                // closing another channel of a file would release the lock this JVM holds on it
+                if (VERSION_LOCKS.containsKey(lockFile) || isInUse(lockFile)) {
+                    if (versionManifest.isFile()) {
+                        live.addAll(Files.readAllLines(versionManifest.toPath(), StandardCharsets.US_ASCII));
+                    }
+                    continue;
+                }
+                deleted.add(versionManifest.getName());
+                Files.deleteIfExists(versionManifest.toPath());
+                Files.deleteIfExists(lockFile.toPath());
+            }
+            File[] files = objects.listFiles();
+            if (files == null) {
+                return;
+            }
+            long freed = 0;
+            for (File object : files) {
+                // a temporary file is either being extracted or was left behind by a crash
+                boolean inProgress = object.getName().endsWith(".tmp") && object.lastModified() >= System.currentTimeMillis() - RETENTION;
+                if (!live.contains(object.getName()) && !inProgress) {
+                    long size = object.length();
+                    if (object.delete()) {
+                        freed += size;
+                        StartupProfile.deleted(size);
+                    }
+                }
+            }
+            if (!deleted.isEmpty() || freed > 0) {
+                LOGGER.log(Level.INFO, "Deleted the unused versions {0} from the shared extraction store, freeing {1} bytes",
+                        new Object[] {deleted, freed});
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to collect the garbage of the shared extraction store", e);
+        } finally {
+            if (lock != null) {
+                try {
+                    lock.release();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Failed to release the lock of the shared extraction store", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether an instance holds the lock of a version, or did recently.
+     */
+    private static boolean isInUse(File lockFile) throws IOException {
+        if (lockFile.lastModified() >= System.currentTimeMillis() - RETENTION) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock(0, Long.MAX_VALUE, false);
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a phase of the launcher's startup.
+ *
+ * <p>
+ * Only referenced from {@link StartupProfile} once it has checked that JFR is available,
+ * as the launcher must still be able to report an unsupported Java version without it.
+ */
+@Name("jenkins.executableWar.StartupPhase")
+@Label("Launcher Startup Phase")
+@Category({"Jenkins", "Launcher"})
+@Description("A phase of the startup of the executable WAR, before Winstone takes over")
+@StackTrace(false)
+final class StartupPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("CPU Time")
+    @Timespan
+    long cpuTime;
+
+    @Label("Bytes Extracted")
+    @DataAmount
+    long bytesExtracted;
+
+    @Label("Bytes Deleted")
+    @DataAmount
+    long bytesDeleted;
+
+    @Label("Classes Loaded")
+    long classesLoaded;
+
+    /**
+     * Tells if a recording is running with this event enabled.
+     */
+    static boolean isRecorded() {
+        return new StartupPhaseEvent().isEnabled();
+    }
+
+    /**
+     * Starts timing a phase.
+     */
+    static Object begin(String phase) {
+        StartupPhaseEvent event = new StartupPhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the phase started by {@link #begin(String)} and commits its event.
+     */
+    static void commit(Object begun, long cpuTime, long bytesExtracted, long bytesDeleted, long classesLoaded) {
+        StartupPhaseEvent event = (StartupPhaseEvent) begun;
+        event.end();
+        event.cpuTime = cpuTime;
+        event.bytesExtracted = bytesExtracted;
+        event.bytesDeleted = bytesDeleted;
+        event.classesLoaded = classesLoaded;
+        event.commit();
+    }
+}
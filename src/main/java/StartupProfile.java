@@ -0,0 +1,235 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Times the phases of the launcher's startup.
+ *
+ * <p>
+ * The launcher calls {@link #phase(String)} at the start of each phase, which also ends the
+ * previous one. For each phase the wall time, the CPU time of the launcher thread, the bytes
+ * extracted and deleted by any thread, and the classes loaded are recorded. The report is written
+ * as JSON by {@link #finish(String)} if a report was asked for, and each phase is emitted as a JFR
+ * event whenever a recording has that event enabled, like with {@code -XX:StartFlightRecording},
+ * with or without the report.
+ *
+ * <p>
+ * Until {@link #enable(File, String)} is called, and afterwards if there is neither a report to write
+ * nor a recording, all of this is a no-op, so that the management classes are not even loaded.
+ */
+final class StartupProfile {
+
+    private static final Logger LOGGER = Logger.getLogger(StartupProfile.class.getName());
+
+    private static final AtomicLong BYTES_EXTRACTED = new AtomicLong();
+    private static final AtomicLong BYTES_DELETED = new AtomicLong();
+
+    private final long startedAt = System.currentTimeMillis();
+    private final long start = System.nanoTime();
+
+    @CheckForNull
+    private File report;
+    private ThreadMXBean threads;
+    private ClassLoadingMXBean classLoading;
+    private boolean jfr;
+
+    private final List<Phase> phases = new ArrayList<>();
+    @CheckForNull
+    private Phase current;
+
+    /**
+     * Records bytes written while extracting files from the WAR.
+     */
+    static void extracted(long bytes) {
+        BYTES_EXTRACTED.addAndGet(bytes);
+    }
+
+    /**
+     * Records bytes freed by deleting files.
+     */
+    static void deleted(long bytes) {
+        BYTES_DELETED.addAndGet(bytes);
+    }
+
+    /**
+     * Starts recording, counting everything since this profile was created as the first phase,
+     * if there is a report to write or a JFR recording to emit the events to.
+     *
+     * @param report where to write the JSON report, if anywhere
+     */
+    void enable(@CheckForNull File report, @NonNull String firstPhase) {
+        this.report = report;
+        try {
+            Class.forName("jdk.jfr.Event");
+            jfr = StartupPhaseEvent.isRecorded();
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.log(Level.FINE, "JFR is not available, not emitting startup events", e);
+        }
+        if (!isEnabled()) {
+            return;
+        }
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.classLoading = ManagementFactory.getClassLoadingMXBean();
+        // everything that happened so far, including the JVM's own startup on this thread
+        current = new Phase(firstPhase, start, 0, 0, 0, 0, null);
+    }
+
+    boolean isEnabled() {
+        return report != null || jfr;
+    }
+
+    /**
+     * Ends the current phase, if any, and starts a new one.
+     */
+    void phase(@NonNull String name) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        Object event = null;
+        if (jfr) {
+            try {
+                event = StartupPhaseEvent.begin(name);
+            } catch (LinkageError e) {
+                jfr = false;
+                LOGGER.log(Level.FINE, "Failed to create the JFR startup event", e);
+            }
+        }
+        current = new Phase(name, System.nanoTime(), threads.getCurrentThreadCpuTime(),
+                BYTES_EXTRACTED.get(), BYTES_DELETED.get(), classLoading.getTotalLoadedClassCount(), event);
+    }
+
+    /**
+     * Ends the last phase and writes the report, if any.
+     */
+    void finish(@NonNull String jenkinsVersion) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (report == null) {
+            return;
+        }
+        long total = System.nanoTime() - start;
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+            w.write("{\n");
+            w.write("  \"startedAt\": " + startedAt + ",\n");
+            w.write("  \"jenkinsVersion\": " + quote(jenkinsVersion) + ",\n");
+            w.write("  \"javaVersion\": " + quote(System.getProperty("java.version")) + ",\n");
+            w.write("  \"wallTimeNanos\": " + total + ",\n");
+            w.write("  \"phases\": [");
+            for (int i = 0; i < phases.size(); i++) {
+                Phase p = phases.get(i);
+                w.write(i == 0 ? "\n" : ",\n");
+                w.write("    {\"name\": " + quote(p.name)
+                        + ", \"wallTimeNanos\": " + p.wallTime
+                        + ", \"cpuTimeNanos\": " + p.cpuTime
+                        + ", \"bytesExtracted\": " + p.bytesExtracted
+                        + ", \"bytesDeleted\": " + p.bytesDeleted
+                        + ", \"classesLoaded\": " + p.classesLoaded + "}");
+            }
+            w.write("\n  ]\n}\n");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write the startup profile to " + report, e);
+        }
+    }
+
+    private void end() {
+        Phase p = current;
+        if (p == null) {
+            return;
+        }
+        current = null;
+        p.wallTime = System.nanoTime() - p.start;
+        p.cpuTime = threads.getCurrentThreadCpuTime() - p.startCpuTime;
+        p.bytesExtracted = BYTES_EXTRACTED.get() - p.startBytesExtracted;
+        p.bytesDeleted = BYTES_DELETED.get() - p.startBytesDeleted;
+        p.classesLoaded = classLoading.getTotalLoadedClassCount() - p.startClassesLoaded;
+        phases.add(p);
+        if (p.event != null) {
+            StartupPhaseEvent.commit(p.event, p.cpuTime, p.bytesExtracted, p.bytesDeleted, p.classesLoaded);
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder b = new StringBuilder("\"");
+        for (char c : String.valueOf(s).toCharArray()) {
+            if (c == '"' || c == '\\') {
+                b.append('\\').append(c);
+            } else if (c < 0x20) {
+                b.append(String.format("\\u%04x", (int) c));
+            } else {
+                b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    private static final class Phase {
+        final String name;
+        final long start;
+        final long startCpuTime;
+        final long startBytesExtracted;
+        final long startBytesDeleted;
+        final long startClassesLoaded;
+        /**
+         * The {@link StartupPhaseEvent} timing this phase, held as an {@link Object} so that JFR is not needed to load this class.
+         */
+        @CheckForNull
+        final Object event;
+
+        long wallTime;
+        long cpuTime;
+        long bytesExtracted;
+        long bytesDeleted;
+        long classesLoaded;
+
+        Phase(String name, long start, long startCpuTime, long startBytesExtracted, long startBytesDeleted, long startClassesLoaded,
+              Object event) {
+            this.name = name;
+            this.start = start;
+            this.startCpuTime = startCpuTime;
+            this.startBytesExtracted = startBytesExtracted;
+            this.startBytesDeleted = startBytesDeleted;
+            this.startClassesLoaded = startClassesLoaded;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a launcher that has done everything but running Winstone waiting for the HTTP port,
+ * so that Jenkins listens again soon after a restart.
+ *
+ * <p>
+ * A launcher that finds the HTTP port taken stands by: it listens on a loopback control port
+ * until the launcher that has the HTTP port tells it that it is exiting, or until the HTTP port
+ * is free anyway, as when the other launcher crashed. It then waits for the listener of the other
+ * launcher to close and starts Winstone right away. The launcher that runs Winstone tells the
+ * standby when it exits. A restarted launcher finds the port taken by the former standby, and
+ * stands by in turn.
+ *
+ * <p>
+ * Winstone opens the HTTP port itself, so it cannot be passed on; the standby binds it as soon as
+ * it is released instead.
+ */
+final class WarmStandby {
+
+    private static final Logger LOGGER = Logger.getLogger(WarmStandby.class.getName());
+
+    private static final String HANDOVER = "handover";
+
+    /**
+     * How often, in milliseconds, the standby checks that the HTTP port is still taken without being told.
+     */
+    private static final int WATCH_INTERVAL = Integer.getInteger("executableWar.standby.watchInterval", 1000);
+
+    /**
+     * How long, in milliseconds, the standby waits for the HTTP port once told to take over, before standing by again.
+     */
+    private static final long HANDOVER_TIMEOUT = Long.getLong("executableWar.standby.handoverTimeout", 60_000);
+
+    /**
+     * How often, in milliseconds, the standby tries the HTTP port once told to take over.
+     */
+    private static final long HANDOVER_POLL_INTERVAL = 10;
+
+    private final int controlPort;
+    private final int port;
+
+    /**
+     * @param controlPort the loopback port the standby listens on
+     * @param port the HTTP port Winstone listens on
+     */
+    WarmStandby(int controlPort, int port) {
+        this.controlPort = controlPort;
+        this.port = port;
+    }
+
+    /**
+     * Whether the HTTP port is taken, by another launcher presumably.
+     */
+    boolean isPortInUse() {
+        try (ServerSocket probe = new ServerSocket()) {
+            // like Jetty, so that connections of the previous listener in TIME_WAIT do not count
+            probe.setReuseAddress(true);
+            probe.bind(new InetSocketAddress(port));
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Stands by until the HTTP port is released.
+     */
+    void await() throws IOException, InterruptedException {
+        LOGGER.log(Level.INFO, "Port {0} is in use, standing by on the control port {1}",
+                new Object[] {String.valueOf(port), String.valueOf(controlPort)});
+        try (ServerSocket control = bindControlPort()) {
+            control.setSoTimeout(WATCH_INTERVAL);
+            while (true) {
+                try (Socket socket = control.accept()) {
+                    socket.setSoTimeout(WATCH_INTERVAL);
+                    String command = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+                    if (HANDOVER.equals(command) && awaitRelease()) {
+                        LOGGER.log(Level.INFO, "Taking over port {0}", String.valueOf(port));
+                        return;
+                    }
+                } catch (SocketTimeoutException e) {
+                    if (!isPortInUse()) {
+                        LOGGER.log(Level.INFO, "Port {0} was released without a handover, taking it over", String.valueOf(port));
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells the standby, if any, to take over when this JVM exits.
+     */
+    void handOverOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::handOver, "Warm standby handover"));
+    }
+
+    /**
+     * Tells the standby, if any, to take over.
+     */
+    void handOver() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), controlPort), WATCH_INTERVAL);
+            OutputStream os = socket.getOutputStream();
+            os.write((HANDOVER + "\n").getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No standby to hand over to on the control port " + controlPort, e);
+        }
+    }
+
+    /**
+     * Waits for the launcher exiting to close its listener.
+     *
+     * @return whether the HTTP port was released in time
+     */
+    private boolean awaitRelease() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HANDOVER_TIMEOUT);
+        while (isPortInUse()) {
+            if (System.nanoTime() - deadline > 0) {
+                LOGGER.log(Level.WARNING, "Port {0} is still in use {1} ms after the handover, standing by again",
+                        new Object[] {String.valueOf(port), HANDOVER_TIMEOUT});
+                return false;
+            }
+            Thread.sleep(HANDOVER_POLL_INTERVAL);
+        }
+        return true;
+    }
+
+    /**
+     * Listens on the control port, once another standby, if any, has taken over.
+     */
+    @NonNull
+    private ServerSocket bindControlPort() throws IOException, InterruptedException {
+        boolean warned = false;
+        while (true) {
+            ServerSocket control = new ServerSocket();
+            try {
+                control.setReuseAddress(true);
+                control.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), controlPort));
+                return control;
+            } catch (IOException e) {
+                control.close();
+                if (!warned) {
+                    LOGGER.log(Level.WARNING, "The control port " + controlPort + " is in use, waiting for it", e);
+                    warned = true;
+                }
+            }
+            Thread.sleep(WATCH_INTERVAL);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Brings an expanded webroot up to date with {@code jenkins.war} by writing only the entries that changed.
+ *
+ * <p>
+ * Winstone deletes and re-expands the whole webroot whenever the WAR's timestamp differs from the
+ * one recorded in {@code .timestamp}. This class keeps a manifest of the name, CRC and size of every
+ * file it expanded, so that on an upgrade it only writes the entries whose CRC or size changed and
+ * deletes the entries that are gone. It then records the WAR's timestamp the way Winstone does, so
+ * that Winstone uses the webroot as-is.
+ *
+ * <p>
+ * The manifest also records the WAR's size, timestamp and the digest of its central directory, so
+ * that a start with an unchanged WAR does not even look at the webroot's files. The digest tells
+ * apart WARs of the same size whose timestamps were normalized, as image and reproducible builds do.
+ *
+ * <p>
+ * The manifest only lists entries known to match the disk. Entries about to be rewritten are
+ * dropped from it before any file is touched, so an interrupted synchronisation is completed on
+ * the next start rather than trusted.
+ *
+ * <p>
+ * With a {@link SharedExtractionStore}, the files are hard links to the copies in the store instead.
+ * Files are always replaced rather than written to, so that the store is never written through a link.
+ */
+final class WebrootSynchronizer {
+
+    private static final Logger LOGGER = Logger.getLogger(WebrootSynchronizer.class.getName());
+
+    /**
+     * Name of the manifest file in the webroot.
+     */
+    static final String MANIFEST = ".webroot-manifest";
+
+    /**
+     * Name of the file whose timestamp Winstone compares with the WAR's.
+     */
+    static final String TIMESTAMP = ".timestamp";
+
+    /**
+     * Marks the identity of a WAR in the manifest when the files are linked to a {@link SharedExtractionStore}.
+     */
+    private static final String SHARED = " shared";
+
+    private final File war;
+    @CheckForNull
+    private final ZipIndex index;
+    private final File webroot;
+    private final Path root;
+    @CheckForNull
+    private final SharedExtractionStore store;
+
+    int written;
+    int deleted;
+    int unchanged;
+
+    WebrootSynchronizer(@NonNull File war, @NonNull File webroot) {
+        this(war, null, webroot);
+    }
+
+    /**
+     * @param index the index of {@code war}, if it is already open
+     */
+    WebrootSynchronizer(@NonNull File war, @CheckForNull ZipIndex index, @NonNull File webroot) {
+        this(war, index, webroot, null);
+    }
+
+    /**
+     * @param index the index of {@code war}, if it is already open
+     * @param store where to link the files from instead of extracting them, if shared
+     */
+    WebrootSynchronizer(@NonNull File war, @CheckForNull ZipIndex index, @NonNull File webroot, @CheckForNull SharedExtractionStore store) {
+        this.war = war;
+        this.index = index;
+        this.webroot = webroot;
+        this.root = webroot.toPath().toAbsolutePath().normalize();
+        this.store = store;
+    }
+
+    /**
+     * Synchronises the webroot with the WAR.
+     */
+    void synchronize() throws IOException {
+        ZipIndex zip = index != null ? index : ZipIndex.open(war);
+        try {
+            synchronize(zip);
+        } finally {
+            if (zip != index) {
+                zip.close();
+            }
+        }
+    }
+
+    private void synchronize(ZipIndex zip) throws IOException {
+        String identity = war.length() + " " + war.lastModified() + " " + zip.centralDirectoryDigest()
+                + (store != null ? SHARED : "");
+        Map<String, Checksum> previous = new HashMap<>();
+        File timestamp = new File(webroot, TIMESTAMP);
+        String recordedIdentity = readManifest(previous);
+        if (identity.equals(recordedIdentity) && timestamp.exists()) {
+            LOGGER.log(Level.FINE, "{0} is up to date with {1}", new Object[] {webroot, war});
+            return;
+        }
+        boolean hasManifest = recordedIdentity != null;
+        // files extracted on their own are replaced by links to the shared store, and the other way around
+        boolean sharingChanged = hasManifest && recordedIdentity.endsWith(SHARED) != (store != null);
+        Map<String, Checksum> current = new LinkedHashMap<>();
+        Map<String, ZipIndex.Entry> toWrite = new LinkedHashMap<>();
+        for (ZipIndex.Entry entry : zip.entries()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            File target = resolve(entry.name);
+            Checksum checksum = new Checksum(entry.crc, entry.size);
+            current.put(entry.name, checksum);
+            if (!sharingChanged && isUpToDate(entry.name, target, checksum, previous)) {
+                unchanged++;
+            } else {
+                toWrite.put(entry.name, entry);
+            }
+        }
+
+        // forget about everything we are about to touch before touching it
+        Map<String, Checksum> known = new LinkedHashMap<>(current);
+        known.keySet().removeAll(toWrite.keySet());
+        for (Map.Entry<String, Checksum> e : previous.entrySet()) {
+            if (!current.containsKey(e.getKey())) {
+                known.put(e.getKey(), e.getValue());
+            }
+        }
+        Files.deleteIfExists(timestamp.toPath());
+        if (!toWrite.isEmpty()) {
+            writeManifest(known, "");
+        }
+
+        for (ZipIndex.Entry entry : toWrite.values()) {
+            File target = resolve(entry.name);
+            Files.createDirectories(target.getParentFile().toPath());
+            if (store != null) {
+                store.link(zip, entry, target);
+            } else {
+                // the file may be a hard link into the shared store, which must not be written through
+                Files.deleteIfExists(target.toPath());
+                ResourceExtractor.extract(zip, entry, target);
+            }
+            written++;
+        }
+
+        if (hasManifest) {
+            for (String name : previous.keySet()) {
+                if (!current.containsKey(name)) {
+                    delete(resolve(name));
+                }
+            }
+        } else {
+            deleteUnknownFiles(current);
+        }
+
+        writeManifest(current, identity);
+        new FileOutputStream(timestamp).close();
+        if (!timestamp.setLastModified(war.lastModified())) {
+            LOGGER.log(Level.WARNING, "Failed to set the timestamp of {0}", timestamp);
+        }
+        LOGGER.log(Level.FINE, "Synchronised {0} with {1}: {2} written, {3} deleted, {4} unchanged",
+                new Object[] {webroot, war, written, deleted, unchanged});
+    }
+
+    private static boolean isUpToDate(String name, File target, Checksum checksum, Map<String, Checksum> previous) throws IOException {
+        if (!target.isFile() || target.length() != checksum.size) {
+            return false;
+        }
+        Checksum recorded = previous.get(name);
+        if (recorded != null) {
+            return recorded.equals(checksum);
+        }
+        // not recorded by an earlier run, e.g. expanded by Winstone, so check the contents
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(target.toPath()));
+        return crc.getValue() == checksum.crc;
+    }
+
+    private void delete(File file) throws IOException {
+        long size = file.length();
+        if (Files.deleteIfExists(file.toPath())) {
+            StartupProfile.deleted(size);
+            deleted++;
+        }
+        // prune the directories that became empty
+        for (File dir = file.getParentFile(); dir != null && !dir.toPath().equals(root); dir = dir.getParentFile()) {
+            String[] children = dir.list();
+            if (children == null || children.length > 0 || !dir.delete()) {
+                break;
+            }
+        }
+    }
+
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "Entry names are checked to stay in the webroot.")
+    private File resolve(String name) throws IOException {
+        Path target = root.resolve(name).normalize();
+        if (!target.startsWith(root) || target.equals(root)) {
+            throw new IOException("Entry " + name + " of " + war + " points outside of " + webroot);
+        }
+        return target.toFile();
+    }
+
+    /**
+     * Deletes the files that were not expanded by us, when there is no manifest to tell which entries were removed.
+     */
+    private void deleteUnknownFiles(Map<String, Checksum> current) throws IOException {
+        if (!webroot.isDirectory()) {
+            return;
+        }
+        List<File> unknown = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(path -> {
+                String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                if (!current.containsKey(name) && !name.equals(MANIFEST) && !name.equals(TIMESTAMP)) {
+                    unknown.add(path.toFile());
+                }
+            });
+        }
+        for (File file : unknown) {
+            delete(file);
+        }
+    }
+
+    /**
+     * Reads the manifest into {@code manifest}.
+     *
+     * @return the identity of the WAR the manifest was written for, or {@code null} if there is no usable manifest
+     */
+    private String readManifest(Map<String, Checksum> manifest) {
+        File file = new File(webroot, MANIFEST);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String header = r.readLine();
+            if (header == null || !header.startsWith("#")) {
+                throw new IOException("Missing header");
+            }
+            String line;
+            while ((line = r.readLine()) != null) {
+                String[] fields = line.split("\t", 3);
+                manifest.put(fields[2], new Checksum(Long.parseLong(fields[0], 16), Long.parseLong(fields[1])));
+            }
+            return header.substring(1);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Ignoring the unreadable webroot manifest " + file, e);
+            manifest.clear();
+            return null;
+        }
+    }
+
+    private void writeManifest(Map<String, Checksum> manifest, String identity) throws IOException {
+        Files.createDirectories(webroot.toPath());
+        File tmp = File.createTempFile(MANIFEST, ".tmp", webroot);
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            w.write("#" + identity + '\n');
+            for (Map.Entry<String, Checksum> e : manifest.entrySet()) {
+                w.write(Long.toHexString(e.getValue().crc) + '\t' + e.getValue().size + '\t' + e.getKey() + '\n');
+            }
+        }
+        ExtractedFileCache.moveAtomically(tmp, new File(webroot, MANIFEST));
+    }
+
+    /**
+     * CRC and size of an entry.
+     */
+    private static final class Checksum {
+        final long crc;
+        final long size;
+
+        Checksum(long crc, long size) {
+            this.crc = crc;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Checksum && ((Checksum) o).crc == crc && ((Checksum) o).size == size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(crc) * 31 + Long.hashCode(size);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Read-only index of a ZIP archive held in a {@link ByteBuffer}.
+ *
+ * <p>
+ * Unlike {@link java.util.zip.ZipFile}, this exposes where each entry's data lives in the archive,
+ * so that stored entries can be copied or sliced without going through an {@link InputStream}.
+ * The central directory is parsed once, into a map from entry name to {@link Entry}.
+ */
+final class ZipIndex implements Closeable {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+
+    /**
+     * The whole archive, in little-endian order.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The channel {@link #buffer} was mapped from, if any.
+     */
+    @CheckForNull
+    private final FileChannel channel;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Position and length of the central directory in {@link #buffer}.
+     */
+    private final int centralDirectoryOffset;
+    private final int centralDirectorySize;
+
+    private ZipIndex(ByteBuffer buffer, FileChannel channel) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+
+        int eocd = findEndOfCentralDirectory();
+        long count = u16(eocd + 10);
+        long cdSize = u32(eocd + 12);
+        long cdOffset = u32(eocd + 16);
+        int cdEnd = eocd;
+        if (eocd >= 20 && this.buffer.getInt(eocd - 20) == ZIP64_LOCATOR) {
+            int zip64 = checkedInt(this.buffer.getLong(eocd - 20 + 8));
+            if (this.buffer.getInt(zip64) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                throw new IOException("Invalid ZIP64 end of central directory record");
+            }
+            count = this.buffer.getLong(zip64 + 32);
+            cdSize = this.buffer.getLong(zip64 + 40);
+            cdOffset = this.buffer.getLong(zip64 + 48);
+            cdEnd = zip64;
+        }
+        // offsets are relative to the start of the archive, which may have been prepended with something else
+        long base = cdEnd - cdSize - cdOffset;
+        if (base < 0) {
+            throw new IOException("Invalid central directory offset");
+        }
+        this.centralDirectoryOffset = checkedInt(base + cdOffset);
+        this.centralDirectorySize = checkedInt(cdSize);
+
+        Map<String, Entry> map = new LinkedHashMap<>((int) Math.min(count * 4 / 3 + 1, 1 << 20));
+        int pos = centralDirectoryOffset;
+        for (long i = 0; i < count; i++) {
+            if (this.buffer.getInt(pos) != CENTRAL_HEADER) {
+                throw new IOException("Invalid central directory header at " + pos);
+            }
+            int method = u16(pos + 10);
+            long crc = u32(pos + 16);
+            long compressedSize = u32(pos + 20);
+            long size = u32(pos + 24);
+            int nameLength = u16(pos + 28);
+            int extraLength = u16(pos + 30);
+            int commentLength = u16(pos + 32);
+            long localHeaderOffset = u32(pos + 42);
+            String name = string(pos + 46, nameLength);
+
+            if (size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                int extra = pos + 46 + nameLength;
+                int extraEnd = extra + extraLength;
+                while (extra + 4 <= extraEnd) {
+                    int id = u16(extra);
+                    int length = u16(extra + 2);
+                    if (id == ZIP64_EXTRA) {
+                        int field = extra + 4;
+                        if (size == 0xFFFFFFFFL) {
+                            size = this.buffer.getLong(field);
+                            field += 8;
+                        }
+                        if (compressedSize == 0xFFFFFFFFL) {
+                            compressedSize = this.buffer.getLong(field);
+                            field += 8;
+                        }
+                        if (localHeaderOffset == 0xFFFFFFFFL) {
+                            localHeaderOffset = this.buffer.getLong(field);
+                        }
+                        break;
+                    }
+                    extra += 4 + length;
+                }
+            }
+            map.put(name, new Entry(name, method, crc, compressedSize, size, base + localHeaderOffset));
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        this.entries = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Indexes an archive held in memory.
+     */
+    static ZipIndex of(@NonNull ByteBuffer buffer) throws IOException {
+        try {
+            return new ZipIndex(buffer, null);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt ZIP archive", e);
+        }
+    }
+
+    /**
+     * Memory-maps a file and indexes it.
+     */
+    static ZipIndex open(@NonNull File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be mapped");
+            }
+            return new ZipIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), channel);
+        } catch (IndexOutOfBoundsException e) {
+            channel.close();
+            throw new IOException("Corrupt ZIP archive " + file, e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entry of that name, or {@code null}.
+     */
+    @CheckForNull
+    Entry get(@NonNull String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns the manifest of the archive, or {@code null} if it has none.
+     */
+    @CheckForNull
+    Manifest manifest() throws IOException {
+        Entry entry = get(JarFile.MANIFEST_NAME);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream is = openStream(entry)) {
+            return new Manifest(is);
+        }
+    }
+
+    /**
+     * Returns all entries, in the order of the central directory.
+     */
+    Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    /**
+     * Returns the channel the archive was mapped from, or {@code null} if it was not mapped from a file.
+     */
+    @CheckForNull
+    FileChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Returns the position of the entry's data in the archive.
+     */
+    long dataOffset(@NonNull Entry entry) throws IOException {
+        int header = checkedInt(entry.localHeaderOffset);
+        if (header > buffer.limit() - 30 || buffer.getInt(header) != LOCAL_HEADER) {
+            throw new IOException("Invalid local header for " + entry.name);
+        }
+        return header + 30L + u16(header + 26) + u16(header + 28);
+    }
+
+    /**
+     * Returns the entry's data as it is stored in the archive, that is compressed if the entry is deflated.
+     */
+    ByteBuffer rawData(@NonNull Entry entry) throws IOException {
+        int offset = checkedInt(dataOffset(entry));
+        if (offset + entry.compressedSize > buffer.limit()) {
+            throw new IOException("Truncated data for " + entry.name);
+        }
+        ByteBuffer data = buffer.duplicate();
+        data.limit(checkedInt(offset + entry.compressedSize)).position(offset);
+        return data.slice();
+    }
+
+    /**
+     * Returns the entry's uncompressed contents.
+     *
+     * <p>
+     * For a stored entry this is a slice of the archive, so nothing is copied.
+     */
+    ByteBuffer contents(@NonNull Entry entry) throws IOException {
+        if (entry.method == ZipEntry.STORED) {
+            return rawData(entry);
+        }
+        if (entry.size > Integer.MAX_VALUE) {
+            throw new IOException(entry.name + " is too large");
+        }
+        byte[] bytes = new byte[(int) entry.size];
+        try (InputStream is = openStream(entry)) {
+            int off = 0;
+            while (off < bytes.length) {
+                int n = is.read(bytes, off, bytes.length - off);
+                if (n < 0) {
+                    throw new IOException("Unexpected end of " + entry.name);
+                }
+                off += n;
+            }
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Returns a copy of the entry's uncompressed contents on the heap, which stays valid when the archive
+     * is rewritten, unlike a slice of a memory-mapped archive.
+     */
+    ByteBuffer read(@NonNull Entry entry) throws IOException {
+        ByteBuffer contents = contents(entry);
+        if (contents.hasArray()) {
+            return contents;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(contents.remaining());
+        copy.put(contents);
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * Returns a stream of the entry's uncompressed contents.
+     */
+    InputStream openStream(@NonNull Entry entry) throws IOException {
+        ByteBuffer data = rawData(entry);
+        switch (entry.method) {
+            case ZipEntry.STORED:
+                return new ByteBufferInputStream(data);
+            case ZipEntry.DEFLATED:
+                // one extra byte is needed by the inflater in "nowrap" mode
+                Inflater inflater = new Inflater(true);
+                return new InflaterInputStream(new ByteBufferInputStream(data, 1), inflater, 8192) {
+                    private boolean closed;
+
+                    @Override
+                    public void close() throws IOException {
+                        if (!closed) {
+                            closed = true;
+                            super.close();
+                            inflater.end();
+                        }
+                    }
+                };
+            default:
+                throw new IOException("Unsupported compression method " + entry.method + " for " + entry.name);
+        }
+    }
+
+    /**
+     * Returns a SHA-256 digest of the central directory, which identifies the archive's contents
+     * without reading all of it.
+     */
+    String centralDirectoryDigest() {
+        ByteBuffer cd = buffer.duplicate();
+        cd.limit(centralDirectoryOffset + centralDirectorySize).position(centralDirectoryOffset);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(cd);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        int limit = Math.max(0, buffer.limit() - 22 - 0xFFFF);
+        for (int pos = buffer.limit() - 22; pos >= limit; pos--) {
+            if (buffer.getInt(pos) == END_OF_CENTRAL_DIRECTORY && pos + 22 + u16(pos + 20) == buffer.limit()) {
+                return pos;
+            }
+        }
+        throw new IOException("Not a ZIP archive: no end of central directory record");
+    }
+
+    private int u16(int pos) {
+        return buffer.getShort(pos) & 0xFFFF;
+    }
+
+    private long u32(int pos) {
+        return buffer.getInt(pos) & 0xFFFFFFFFL;
+    }
+
+    private String string(int pos, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer b = buffer.duplicate();
+        b.position(pos);
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkedInt(long value) throws IOException {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Offset out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * An entry of the central directory.
+     */
+    static final class Entry {
+        final String name;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * {@link InputStream} over a {@link ByteBuffer}, optionally followed by padding zero bytes.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private int padding;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this(buffer, 0);
+        }
+
+        ByteBufferInputStream(ByteBuffer buffer, int padding) {
+            this.buffer = buffer;
+            this.padding = padding;
+        }
+
+        @Override
+        public int read() {
+            if (buffer.hasRemaining()) {
+                return buffer.get() & 0xFF;
+            }
+            if (padding > 0) {
+                padding--;
+                return 0;
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                if (padding > 0) {
+                    padding--;
+                    b[off] = 0;
+                    return 1;
+                }
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining() + padding;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.For;
+
+@For(AsyncLogWriter.class)
+public class AsyncLogWriterTest {
+
+    @Test
+    public void shouldKeepTheLinesOfEachThreadInOrder() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        int threads = 4;
+        int lines = 2000;
+        try (AsyncLogWriter writer = new AsyncLogWriter(target, 4096, AsyncLogWriter.BackPressure.BLOCK, "test")) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < lines; i++) {
+                            // some lines span several cells
+                            StringBuilder line = new StringBuilder(id + " " + i + " ");
+                            for (int j = 0; j < i % 700; j++) {
+                                line.append('x');
+                            }
+                            writer.write(line.append('\n').toString().getBytes(StandardCharsets.US_ASCII));
+                        }
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                thread.start();
+                writers.add(thread);
+            }
+            for (Thread thread : writers) {
+                thread.join();
+            }
+            writer.flush();
+        }
+        int[] next = new int[threads];
+        for (String line : target.toString("US-ASCII").split("\n")) {
+            String[] fields = line.split(" ");
+            int id = Integer.parseInt(fields[0]);
+            Assert.assertEquals(next[id]++, Integer.parseInt(fields[1]));
+        }
+        for (int t = 0; t < threads; t++) {
+            Assert.assertEquals(lines, next[t]);
+        }
+    }
+
+    @Test
+    public void shouldCountDroppedWritesWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        OutputStream slow = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                target.write(b, off, len);
+            }
+        };
+        byte[] line = new byte[AsyncLogWriter.CELL_SIZE];
+        try (AsyncLogWriter writer = new AsyncLogWriter(slow, 4 * AsyncLogWriter.CELL_SIZE, AsyncLogWriter.BackPressure.DROP, "test")) {
+            // the writer thread takes what is queued and waits, the next four fill the buffer up
+            for (int i = 0; i < 10; i++) {
+                writer.write(line);
+            }
+            Assert.assertTrue(writer.getDroppedWrites() >= 10 - 2 * 4);
+            Assert.assertEquals(writer.getDroppedWrites() * line.length, writer.getDroppedBytes());
+            release.countDown();
+            writer.flush();
+            long written = (10 - writer.getDroppedWrites()) * line.length;
+            Assert.assertTrue(target.toString("US-ASCII").contains("writes dropped"));
+            Assert.assertTrue(target.size() > written);
+        }
+    }
+
+    @Test
+    public void shouldSpillOnTheCallingThreadWhenFull() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (AsyncLogWriter writer = new AsyncLogWriter(target, 2 * AsyncLogWriter.CELL_SIZE, AsyncLogWriter.BackPressure.SPILL, "test")) {
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                String line = "line " + i + "\n";
+                expected.append(line);
+                writer.write(line.getBytes(StandardCharsets.US_ASCII));
+            }
+            writer.flush();
+            Assert.assertEquals(0, writer.getDroppedWrites());
+            Assert.assertEquals(expected.toString(), target.toString("US-ASCII"));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For({ClassDataSharing.class, ChildJvm.class})
+public class ClassDataSharingTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldRecordArchiveThenUseIt() throws IOException {
+        File directory = tmp.newFolder("cds");
+        File war = createWar();
+
+        ChildJvm child = new ChildJvm().jvmOption("-Xmx256m");
+        ClassDataSharing cds = new ClassDataSharing(child, war, "2.500", directory);
+        File recording = cds.prepare();
+        Assert.assertNotNull(recording);
+        Assert.assertTrue(recording.getName(), recording.getName().startsWith(cds.archive().getName() + "."));
+        List<String> command = child.command(Collections.singletonList("--httpPort=8080"));
+        Assert.assertTrue(command.toString(), command.contains("-XX:ArchiveClassesAtExit=" + recording.getAbsolutePath()));
+        // JVM options go before the main class, arguments after it
+        Assert.assertTrue(command.toString(), command.indexOf("-Xmx256m") < command.indexOf("Main"));
+        Assert.assertEquals(Arrays.asList("Main", "--httpPort=8080"), command.subList(command.size() - 2, command.size()));
+
+        // a child that failed before recording leaves nothing
+        cds.install(recording);
+        Assert.assertFalse(recording.exists());
+        Assert.assertFalse(cds.archive().exists());
+
+        Files.write(recording.toPath(), new byte[] {1, 2, 3});
+        cds.install(recording);
+        Assert.assertFalse(recording.exists());
+        Assert.assertTrue(cds.archive().isFile());
+
+        child = new ChildJvm().jvmOption("-Xmx256m");
+        ClassDataSharing next = new ClassDataSharing(child, war, "2.500", directory);
+        Assert.assertEquals(cds.archive(), next.archive());
+        Assert.assertNull(next.prepare());
+        Assert.assertTrue(child.jvmOptions().toString(), child.jvmOptions().contains("-XX:SharedArchiveFile=" + cds.archive().getAbsolutePath()));
+    }
+
+    @Test
+    public void shouldNameArchiveAfterRuntimeOptions() throws IOException {
+        File directory = tmp.newFolder("cds");
+        File war = createWar();
+        File small = new ClassDataSharing(new ChildJvm().jvmOption("-Xmx256m"), war, "2.500", directory).archive();
+        File large = new ClassDataSharing(new ChildJvm().jvmOption("-Xmx1g"), war, "2.500", directory).archive();
+        Assert.assertNotEquals(small, large);
+    }
+
+    @Test
+    public void shouldDeleteStaleArchivesAndLeftoverRecordings() throws Exception {
+        File directory = tmp.newFolder("cds");
+        ClassDataSharing cds = new ClassDataSharing(new ChildJvm(), createWar(), "2.500", directory);
+        File archive = cds.archive();
+        Assert.assertTrue(archive.createNewFile());
+        File other = createFile(directory, "jenkins-2.499-0123456789abcdef-01234567.jsa");
+        File otherRecording = createFile(directory, other.getName() + ".1.tmp");
+        File leftover = createFile(directory, archive.getName() + ".2.tmp");
+        File concurrent = createFile(directory, archive.getName() + ".3.tmp");
+        File unrelated = createFile(directory, "winstone-01234567-1.jar");
+        long since = System.currentTimeMillis() - 60_000;
+        Assert.assertTrue(leftover.setLastModified(since - 60_000));
+
+        cds.deleteStale(since);
+
+        Assert.assertTrue(Janitor.awaitIdle(30, TimeUnit.SECONDS));
+        Assert.assertTrue(archive.exists());
+        Assert.assertTrue(concurrent.exists());
+        Assert.assertTrue(unrelated.exists());
+        Assert.assertFalse(other.exists());
+        Assert.assertFalse(otherRecording.exists());
+        Assert.assertFalse(leftover.exists());
+    }
+
+    @Test
+    public void shouldRunExitActionOnce() throws Exception {
+        AtomicInteger exits = new AtomicInteger();
+        ChildJvm child = new ChildJvm().onExit(exits::incrementAndGet);
+        Assert.assertEquals(0, child.run(Collections.singletonList("--version"), null));
+        Assert.assertEquals(1, exits.get());
+    }
+
+    private File createWar() throws IOException {
+        return new TestArchive().add("winstone.jar", "winstone").writeTo(tmp.newFile("jenkins.war"));
+    }
+
+    private static File createFile(File directory, String name) throws IOException {
+        File file = new File(directory, name);
+        Assert.assertTrue(file.createNewFile());
+        return file;
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(ClassPreloader.class)
+public class ClassPreloaderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldPreloadRecordedClasses() throws Exception {
+        File dir = tmp.newFolder();
+        File war = createWar();
+        File jar = tmp.newFile("winstone.jar");
+        ZipIndex index = ZipIndex.open(war);
+        ResourceExtractor.extract(index, index.get("winstone.jar"), jar);
+
+        ClassPreloader first = new ClassPreloader(index, "winstone.jar", "winstone", dir);
+        NestedJarClassLoader cl = new NestedJarClassLoader(jar, null);
+        cl.recordClasses(first.recorder());
+        first.start(cl);
+        cl.loadClass("executable.Executable");
+        first.save();
+        File[] lists = dir.listFiles((d, name) -> name.endsWith(".classes"));
+        Assert.assertEquals(1, lists.length);
+        Assert.assertEquals(Collections.singletonList("executable.Executable"),
+                Files.readAllLines(lists[0].toPath(), StandardCharsets.UTF_8));
+
+        // the next start loads the class without being asked to
+        ClassPreloader second = new ClassPreloader(index, "winstone.jar", "winstone", dir);
+        cl = new NestedJarClassLoader(jar, null);
+        cl.recordClasses(second.recorder());
+        second.start(cl);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!second.recorder().contains("executable.Executable")) {
+            Assert.assertTrue("class was not preloaded", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        // nothing new was loaded, so the list is left alone
+        long lastModified = lists[0].lastModified();
+        lists[0].setLastModified(lastModified - 10_000);
+        second.save();
+        Assert.assertEquals(lastModified - 10_000, lists[0].lastModified());
+        index.close();
+    }
+
+    @Test
+    public void shouldOnlyDeleteStaleListsWhenAsked() throws IOException {
+        File dir = tmp.newFolder();
+        File stale = new File(dir, ExtractedFileCache.cachedFileName("winstone", ".classes", 0xcafe, 1000));
+        Assert.assertTrue(stale.createNewFile());
+        try (ZipIndex index = ZipIndex.open(createWar())) {
+            ClassPreloader preloader = new ClassPreloader(index, "winstone.jar", "winstone", dir);
+            Assert.assertTrue("the list of another instance should be left alone", stale.exists());
+            preloader.deleteStale();
+            Assert.assertFalse(stale.exists());
+        }
+    }
+
+    private File createWar() throws IOException {
+        byte[] jar = new TestArchive().addResource("executable/Executable.class").toByteArray();
+        return new TestArchive().add("winstone.jar", jar).writeTo(tmp.newFile("jenkins.war"));
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(ExtractedFileCache.class)
+public class ExtractedFileCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldReuseValidCopy() throws IOException {
+        byte[] content = randomBytes(100_000);
+        File war = createWar(content);
+        ExtractedFileCache cache = new ExtractedFileCache(tmp.newFolder("cache"));
+
+        File first = cache.extract(war, "winstone.jar", "winstone", ".jar");
+        Assert.assertArrayEquals(content, Files.readAllBytes(first.toPath()));
+        Assert.assertTrue(first.setLastModified(0));
+
+        File second = cache.extract(war, "winstone.jar", "winstone", ".jar");
+        Assert.assertEquals(first, second);
+        Assert.assertEquals("the cached copy should not have been rewritten", 0, second.lastModified());
+    }
+
+    @Test
+    public void shouldReextractCorruptCopy() throws IOException {
+        byte[] content = randomBytes(10_000);
+        File war = createWar(content);
+        ExtractedFileCache cache = new ExtractedFileCache(tmp.newFolder("cache"));
+
+        File cached = cache.extract(war, "winstone.jar", "winstone", ".jar");
+        try (RandomAccessFile raf = new RandomAccessFile(cached, "rw")) {
+            raf.seek(42);
+            raf.write(~content[42]);
+        }
+        Assert.assertArrayEquals(content, Files.readAllBytes(cache.extract(war, "winstone.jar", "winstone", ".jar").toPath()));
+    }
+
+    @Test
+    public void shouldDeleteStaleCopiesOnly() throws IOException {
+        File folder = tmp.newFolder("cache");
+        ExtractedFileCache cache = new ExtractedFileCache(folder);
+        File current = cache.extract(createWar(randomBytes(1000)), "winstone.jar", "winstone", ".jar");
+        File stale = new File(folder, ExtractedFileCache.cachedFileName("winstone", ".jar", 0xcafe, 1000));
+        File unrelated = new File(folder, "winstone-plugin.jar");
+        Assert.assertTrue(stale.createNewFile());
+        Assert.assertTrue(unrelated.createNewFile());
+
+        cache.deleteStale("winstone", ".jar", current);
+
+        Assert.assertTrue(current.exists());
+        Assert.assertTrue(unrelated.exists());
+        Assert.assertFalse(stale.exists());
+    }
+
+    @Test
+    public void shouldReuseValidCopyOfWar() throws IOException {
+        File war = createWar(randomBytes(10_000));
+        File folder = tmp.newFolder("cache");
+        ExtractedFileCache cache = new ExtractedFileCache(folder);
+
+        File first = cache.copy(war.toURI().toURL(), "jenkins", ".war");
+        Assert.assertArrayEquals(Files.readAllBytes(war.toPath()), Files.readAllBytes(first.toPath()));
+        Assert.assertTrue(first.setLastModified(0));
+        Assert.assertEquals(first, cache.copy(war.toURI().toURL(), "jenkins", ".war"));
+        Assert.assertEquals("the cached copy should not have been rewritten", 0, first.lastModified());
+
+        // a truncated copy is replaced
+        try (RandomAccessFile raf = new RandomAccessFile(first, "rw")) {
+            raf.setLength(first.length() - 1);
+        }
+        Assert.assertArrayEquals(Files.readAllBytes(war.toPath()), Files.readAllBytes(cache.copy(war.toURI().toURL(), "jenkins", ".war").toPath()));
+
+        // a modified WAR gets a new copy, and the digest of the old one goes with it
+        Assert.assertTrue(war.setLastModified(war.lastModified() - 10_000));
+        File second = cache.copy(war.toURI().toURL(), "jenkins", ".war");
+        Assert.assertNotEquals(first, second);
+        cache.deleteStale("jenkins", ".war", second);
+        Assert.assertEquals(2, folder.list().length);
+    }
+
+    @Test
+    public void shouldKeepCopiesInPrivateDirectoryByDefault() throws IOException {
+        File explicit = tmp.newFolder("explicit");
+        Assert.assertEquals(explicit, ExtractedFileCache.defaultDirectory(explicit));
+
+        String tmpdir = System.getProperty("java.io.tmpdir");
+        System.setProperty("java.io.tmpdir", tmp.getRoot().getAbsolutePath());
+        try {
+            File directory = ExtractedFileCache.defaultDirectory(null);
+            Assert.assertEquals(tmp.getRoot(), directory.getParentFile());
+            Assert.assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.toPath())));
+            Assert.assertEquals(directory, ExtractedFileCache.defaultDirectory(null));
+
+            // as if created by someone else, to plant copies in it
+            Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+            try {
+                ExtractedFileCache.defaultDirectory(null);
+                Assert.fail("a directory others can write to should not be used");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            System.setProperty("java.io.tmpdir", tmpdir);
+        }
+    }
+
+    private File createWar(byte[] content) throws IOException {
+        return new TestArchive().add("winstone.jar", content).writeTo(tmp.newFile("jenkins" + System.nanoTime() + ".war"));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(ExtractionManifest.class)
+public class ExtractionManifestTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldUseJarInsideFolder() throws IOException {
+        File folder = tmp.newFolder("extracted");
+        File war = tmp.newFile("jenkins.war");
+        File webroot = createWebroot(war);
+        File jar = new File(folder, "winstone.jar");
+        Files.write(jar.toPath(), new byte[] {1, 2, 3});
+
+        ExtractionManifest.write(folder, war, jar, webroot);
+        Assert.assertEquals(jar, ExtractionManifest.read(folder, war, webroot));
+
+        Assert.assertTrue(war.setLastModified(war.lastModified() - 10_000));
+        Assert.assertNull(ExtractionManifest.read(folder, war, webroot));
+    }
+
+    @Test
+    public void shouldIgnoreJarOutsideFolder() throws IOException {
+        File folder = tmp.newFolder("extracted");
+        File war = tmp.newFile("jenkins.war");
+        File webroot = createWebroot(war);
+        File jar = tmp.newFile("winstone.jar");
+
+        ExtractionManifest.write(folder, war, jar, webroot);
+        Assert.assertNull(ExtractionManifest.read(folder, war, webroot));
+
+        File link = new File(folder, "winstone.jar");
+        Files.createSymbolicLink(link.toPath(), jar.toPath());
+        ExtractionManifest.write(folder, war, link, webroot);
+        Assert.assertNull(ExtractionManifest.read(folder, war, webroot));
+    }
+
+    private File createWebroot(File war) throws IOException {
+        File webroot = tmp.newFolder("webroot");
+        File timestamp = new File(webroot, WebrootSynchronizer.TIMESTAMP);
+        Assert.assertTrue(timestamp.createNewFile());
+        Assert.assertTrue(timestamp.setLastModified(war.lastModified()));
+        return webroot;
+    }
+}
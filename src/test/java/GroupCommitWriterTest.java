@@ -0,0 +1,110 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.For;
+
+@For(GroupCommitWriter.class)
+public class GroupCommitWriterTest {
+
+    /**
+     * Holds incomplete lines for longer than the tests take, so that they are only written when asked.
+     */
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Counts the writes, and checks that each one ends with a complete line.
+     */
+    private static final class Target extends ByteArrayOutputStream {
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writes.incrementAndGet();
+            Assert.assertEquals('\n', b[off + len - 1]);
+            super.write(b, off, len);
+        }
+    }
+
+    @Test
+    public void shouldWriteCompleteLinesInBatches() throws Exception {
+        Target target = new Target();
+        AtomicInteger forces = new AtomicInteger();
+        int threads = 8;
+        int lines = 500;
+        try (GroupCommitWriter writer = new GroupCommitWriter(target, forces::incrementAndGet, 1, GroupCommitWriter.DURABILITY_EVERY_BATCH, HOUR)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < lines; i++) {
+                            // like println, which writes the line separator on its own
+                            writer.write("line".getBytes(StandardCharsets.US_ASCII));
+                            writer.write('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                thread.start();
+                writers.add(thread);
+            }
+            for (Thread thread : writers) {
+                thread.join();
+            }
+        }
+        Assert.assertEquals(threads * lines * "line\n".length(), target.size());
+        Assert.assertTrue(target.writes.get() + " writes", target.writes.get() < threads * lines);
+        Assert.assertTrue(forces.get() >= target.writes.get());
+    }
+
+    @Test
+    public void shouldHoldIncompleteLineUntilFlushed() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        AtomicInteger forces = new AtomicInteger();
+        try (GroupCommitWriter writer = new GroupCommitWriter(target, forces::incrementAndGet, 0, GroupCommitWriter.DURABILITY_NONE, HOUR)) {
+            writer.write("first\nsec".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertEquals("first\n", target.toString("US-ASCII"));
+            writer.write("ond\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertEquals("first\nsecond\n", target.toString("US-ASCII"));
+            writer.write("third".getBytes(StandardCharsets.US_ASCII));
+            writer.flush();
+            Assert.assertEquals("first\nsecond\nthird", target.toString("US-ASCII"));
+        }
+        Assert.assertEquals(0, forces.get());
+    }
+
+    @Test
+    public void shouldWriteIncompleteLineAfterAWhile() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (GroupCommitWriter writer = new GroupCommitWriter(target, () -> { }, 0, GroupCommitWriter.DURABILITY_NONE)) {
+            // like a prompt, or what a crashing process got to print
+            writer.write("line\nPassword: ".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertEquals("line\n", target.toString("US-ASCII"));
+            awaitContents(target, "line\nPassword: ");
+            writer.write("more".getBytes(StandardCharsets.US_ASCII));
+            awaitContents(target, "line\nPassword: more");
+        }
+    }
+
+    @Test
+    public void shouldAcceptNoGroupCommitWindow() {
+        Assert.assertEquals(0, LogFileOptions.parse(new String[] {"--logfile.groupCommit=0"}).groupCommit);
+        Assert.assertEquals(0, LogFileOptions.parse(new String[] {"--logfile.groupCommit"}).groupCommit);
+        Assert.assertEquals(2, LogFileOptions.parse(new String[] {"--logfile.groupCommit=2ms"}).groupCommit);
+    }
+
+    private static void awaitContents(ByteArrayOutputStream target, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!target.toString("US-ASCII").equals(expected)) {
+            Assert.assertTrue(target.toString("US-ASCII"), System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(GzipLogOutputStream.class)
+public class GzipLogOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldBeReadableWhileWritten() throws Exception {
+        File log = new File(tmp.getRoot(), "jenkins.log.gz");
+        try (GzipLogOutputStream out = new GzipLogOutputStream(log, Long.MAX_VALUE)) {
+            out.write("first\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            out.write("second\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertEquals("first\n", gunzip(log));
+            out.flush();
+            Assert.assertEquals("first\nsecond\n", gunzip(log));
+            Assert.assertEquals(log.length(), out.size());
+        }
+    }
+
+    @Test
+    public void shouldAppendMembersOnReopen() throws Exception {
+        File log = new File(tmp.getRoot(), "jenkins.log.gz");
+        LogFileOptions options = LogFileOptions.parse(new String[] {"--logfile.gzip"});
+        try (LogFileOutputStream out = new LogFileOutputStream(log, options)) {
+            for (int i = 0; i < 1000; i++) {
+                out.write(("line " + i + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+            out.reopen();
+            out.write("after\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        String text = gunzip(log);
+        Assert.assertTrue(text.startsWith("line 0\nline 1\n"));
+        Assert.assertTrue(text.endsWith("line 999\nafter\n"));
+        try (InputStream in = new GZIPInputStream(new FileInputStream(log))) {
+            // both members are finished
+            while (in.read() >= 0) {
+                // skip
+            }
+        }
+    }
+
+    @Test
+    public void shouldStartNewFileAfterUnfinishedMember() throws Exception {
+        File log = new File(tmp.getRoot(), "jenkins.log.gz");
+        try (GzipLogOutputStream out = new GzipLogOutputStream(log, Long.MAX_VALUE)) {
+            out.write("finished\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        Assert.assertTrue(GzipLogOutputStream.endsWithCompleteMember(log));
+        // as if killed after a flush, so that the member has no trailer
+        GzipLogOutputStream killed = new GzipLogOutputStream(log, Long.MAX_VALUE);
+        killed.write("unfinished\n".getBytes(StandardCharsets.US_ASCII));
+        killed.flush();
+        Assert.assertFalse(GzipLogOutputStream.endsWithCompleteMember(log));
+
+        try (GzipLogOutputStream out = new GzipLogOutputStream(log, Long.MAX_VALUE)) {
+            out.write("restarted\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        Assert.assertEquals("restarted\n", gunzip(log));
+        Assert.assertTrue(GzipLogOutputStream.endsWithCompleteMember(log));
+        File[] aside = tmp.getRoot().listFiles((dir, name) -> name.startsWith("jenkins.log.gz."));
+        Assert.assertEquals(1, aside.length);
+        Assert.assertEquals("finished\nunfinished\n", gunzip(aside[0]));
+    }
+
+    @Test
+    public void shouldIgnoreSegmentsWhenGzipped() throws IOException {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stderr = System.err;
+        System.setErr(new PrintStream(err, true, "UTF-8"));
+        LogFileOptions options;
+        try {
+            options = LogFileOptions.parse(new String[] {"--logfile.gzip", "--logfile.segmentSize=1m"});
+        } finally {
+            System.setErr(stderr);
+        }
+        Assert.assertTrue(options.gzip);
+        Assert.assertEquals("segments are not compressed", 0, options.segmentSize);
+        Assert.assertEquals("Ignoring --logfile.segmentSize, it cannot be combined with --logfile.gzip",
+                err.toString("UTF-8").trim());
+    }
+
+    /**
+     * Decompresses what can be, as {@code zcat} does with a file being written.
+     */
+    private static String gunzip(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (EOFException e) {
+            // the member is not finished yet
+        }
+        return out.toString("US-ASCII");
+    }
+}
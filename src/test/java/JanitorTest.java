@@ -0,0 +1,74 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(Janitor.class)
+public class JanitorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldRenameToTombstoneAndDeleteInBackground() throws Exception {
+        File folder = tmp.newFolder("winstone");
+        File tree = createTree(new File(folder, "jenkins.war"));
+
+        Janitor.delete(tree);
+        // the name is free for reuse right away
+        Assert.assertFalse(tree.exists());
+        Assert.assertTrue(tree.mkdir());
+
+        Assert.assertTrue("the tombstone should have been deleted", Janitor.awaitIdle(30, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("jenkins.war"), Arrays.asList(folder.list()));
+        Assert.assertEquals(0, tree.list().length);
+    }
+
+    @Test
+    public void shouldDeleteFilesRightAway() throws IOException {
+        File file = tmp.newFile("winstone.jar");
+        Janitor.delete(file);
+        Assert.assertFalse(file.exists());
+    }
+
+    @Test
+    public void shouldCollectLeftoverTombstones() throws Exception {
+        File folder = tmp.newFolder("winstone");
+        File leftover = createTree(new File(folder, ".jenkins.war.7c6b2b5e-1c4f-4f0e-9a3b-0c2d8e6f1a2b" + Janitor.TOMBSTONE_SUFFIX));
+        File hidden = createTree(new File(folder, ".jenkins.war"));
+        File other = createTree(new File(folder, "jenkins.war" + Janitor.TOMBSTONE_SUFFIX));
+
+        Janitor.collectTombstones(folder);
+
+        Assert.assertTrue("the leftover should have been deleted", Janitor.awaitIdle(30, TimeUnit.SECONDS));
+        Assert.assertFalse(leftover.exists());
+        Assert.assertTrue(hidden.isDirectory());
+        Assert.assertTrue(other.isDirectory());
+    }
+
+    @Test
+    public void shouldCountDeletedFilesAndDirectories() throws IOException {
+        File tree = createTree(tmp.newFolder("jenkins.war"));
+        // the root, WEB-INF, WEB-INF/classes and jsp, with 2 files in each of the last two
+        Assert.assertEquals(8, Janitor.deleteTree(tree.toPath(), 0));
+        Assert.assertFalse(tree.exists());
+    }
+
+    private static File createTree(File root) throws IOException {
+        for (String dir : new String[] {"WEB-INF/classes", "jsp"}) {
+            Path path = Files.createDirectories(root.toPath().resolve(dir));
+            Files.write(path.resolve("a.class"), new byte[512]);
+            Files.write(path.resolve("b.class"), new byte[512]);
+        }
+        return root;
+    }
+}
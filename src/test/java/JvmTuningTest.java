@@ -0,0 +1,136 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For({JvmTuning.class, CgroupLimits.class})
+public class JvmTuningTest {
+
+    private static final long GB = 1024L * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldReadCgroupV2Limits() throws Exception {
+        File mount = tmp.newFolder("cgroup");
+        write(new File(mount, "cgroup.controllers"), "cpu memory");
+        write(new File(mount, "memory.max"), "max");
+        write(new File(mount, "cpu.max"), "max 100000");
+        // the parent group is stricter on memory, the group itself on CPU
+        write(new File(mount, "jenkins.slice/memory.max"), "4294967296");
+        write(new File(mount, "jenkins.slice/cpu.max"), "400000 100000");
+        write(new File(mount, "jenkins.slice/jenkins.service/memory.max"), "8589934592");
+        write(new File(mount, "jenkins.slice/jenkins.service/cpu.max"), "150000 100000");
+        File self = write(tmp.newFile(), "0::/jenkins.slice/jenkins.service");
+
+        CgroupLimits limits = CgroupLimits.read(mount, self);
+        Assert.assertEquals(4 * GB, limits.memory());
+        Assert.assertEquals(1.5, limits.cpus(), 0.001);
+
+        // in a container, the group of the process is at the root of the mount
+        write(self, "0::/");
+        limits = CgroupLimits.read(mount, self);
+        Assert.assertEquals(CgroupLimits.UNLIMITED, limits.memory());
+        Assert.assertEquals(CgroupLimits.UNLIMITED, limits.cpus(), 0);
+    }
+
+    @Test
+    public void shouldReadCgroupV1Limits() throws Exception {
+        File mount = tmp.newFolder("cgroup");
+        write(new File(mount, "memory/memory.limit_in_bytes"), "2147483648");
+        write(new File(mount, "cpu,cpuacct/cpu.cfs_quota_us"), "200000");
+        write(new File(mount, "cpu,cpuacct/cpu.cfs_period_us"), "100000");
+        File self = write(tmp.newFile(), "5:memory:/docker/0123\n3:cpu,cpuacct:/docker/0123");
+
+        CgroupLimits limits = CgroupLimits.read(mount, self);
+        Assert.assertEquals(2 * GB, limits.memory());
+        Assert.assertEquals(2, limits.cpus(), 0.001);
+
+        write(new File(mount, "memory/memory.limit_in_bytes"), "9223372036854771712");
+        write(new File(mount, "cpu,cpuacct/cpu.cfs_quota_us"), "-1");
+        limits = CgroupLimits.read(mount, self);
+        Assert.assertEquals(CgroupLimits.UNLIMITED, limits.memory());
+        Assert.assertEquals(CgroupLimits.UNLIMITED, limits.cpus(), 0);
+
+        // not on Linux
+        limits = CgroupLimits.read(new File(mount, "missing"), new File(self.getPath() + ".missing"));
+        Assert.assertEquals(CgroupLimits.UNLIMITED, limits.memory());
+    }
+
+    @Test
+    public void shouldPickOptionsByProfile() {
+        List<String> options = JvmTuning.options(JvmTuning.Profile.BALANCED, 4 * GB, 4, Collections.emptyList());
+        Assert.assertEquals(Arrays.asList("-Xmx1659m", "-Xms414m", "-XX:MaxMetaspaceSize=497m", "-XX:+UseG1GC",
+                "-XX:ParallelGCThreads=4", "-XX:ConcGCThreads=1", "-XX:ActiveProcessorCount=4",
+                "-XX:ReservedCodeCacheSize=240m"), options);
+
+        // too small for G1
+        options = JvmTuning.options(JvmTuning.Profile.BALANCED, GB, 1, Collections.emptyList());
+        Assert.assertTrue(options.toString(), options.contains("-XX:+UseSerialGC"));
+        Assert.assertFalse(options.toString(), options.stream().anyMatch(o -> o.startsWith("-XX:ParallelGCThreads=")));
+
+        options = JvmTuning.options(JvmTuning.Profile.of("throughput"), 4 * GB, 8, Collections.emptyList());
+        Assert.assertTrue(options.toString(), options.containsAll(Arrays.asList("-Xmx2323m", "-Xms2323m", "-XX:+UseParallelGC", "-XX:ParallelGCThreads=8")));
+
+        try {
+            JvmTuning.Profile.of("fastest");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldFitInTheLimit() {
+        for (long limitMb : new long[] {512, 1024, 2048}) {
+            for (JvmTuning.Profile profile : JvmTuning.Profile.values()) {
+                List<String> options = JvmTuning.options(profile, limitMb * 1024 * 1024, 2, Collections.emptyList());
+                String message = profile + " with " + limitMb + " MB: " + options;
+                if (options.stream().noneMatch(o -> o.startsWith("-Xmx"))) {
+                    // too small to size, which only the profiles with a large code cache may be
+                    Assert.assertTrue(message, limitMb == 512 && profile != JvmTuning.Profile.SMALL);
+                    Assert.assertFalse(message, options.stream().anyMatch(o -> o.startsWith("-XX:MaxMetaspaceSize=")
+                            || o.startsWith("-XX:ReservedCodeCacheSize=")));
+                    continue;
+                }
+                long used = size(options, "-Xmx") + size(options, "-XX:MaxMetaspaceSize=") + size(options, "-XX:ReservedCodeCacheSize=")
+                        + JvmTuning.PARENT_RESERVE_MB + limitMb * JvmTuning.NATIVE_RESERVE_PERCENT / 100;
+                Assert.assertTrue(message, used <= limitMb);
+                Assert.assertTrue(message, size(options, "-Xmx") >= JvmTuning.MIN_HEAP_MB);
+            }
+        }
+    }
+
+    @Test
+    public void shouldKeepOptionsOfTheUser() {
+        List<String> options = JvmTuning.options(JvmTuning.Profile.BALANCED, 4 * GB, 4,
+                Arrays.asList("-XX:MaxRAMPercentage=80", "-XX:+UseStringDeduplication", "-XX:+UseZGC", "-XX:ConcGCThreads=2"));
+        Assert.assertEquals(Arrays.asList("-XX:MaxMetaspaceSize=497m", "-XX:ParallelGCThreads=4",
+                "-XX:ActiveProcessorCount=4", "-XX:ReservedCodeCacheSize=240m"), options);
+    }
+
+    private static long size(List<String> options, String prefix) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return Long.parseLong(option.substring(prefix.length(), option.length() - 1));
+            }
+        }
+        throw new AssertionError(prefix + " is not in " + options);
+    }
+
+    private static File write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
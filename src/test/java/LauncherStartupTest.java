@@ -0,0 +1,115 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(Main.class)
+public class LauncherStartupTest {
+
+    /**
+     * Most time a start may take to get to Winstone, far more than it needs, to catch startups that hang;
+     * set {@code startupHarness.budget} to loosen it on slow machines.
+     */
+    private static final long BUDGET_MILLIS = Long.getLong("startupHarness.budget", 10_000);
+
+    /**
+     * Most times the launcher may take to get to Winstone compared to the JVM getting there without it.
+     * It was about 6 when recorded, on a single CPU, so this fails when the launcher gets half as slow again;
+     * set {@code startupHarness.maxRatio} to record a new baseline.
+     */
+    private static final double MAX_RATIO = Double.parseDouble(System.getProperty("startupHarness.maxRatio", "9"));
+
+    /**
+     * Starts timed for each of the launcher and the JVM alone, of which the median is compared.
+     */
+    private static final int RUNS = 5;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldExtractWinstoneOnceAndCleanUp() throws Exception {
+        StartupHarness.Run run = new StartupHarness(tmp.getRoot()).run();
+        assertWithinBudget(run);
+        Assert.assertTrue(run.sessionCookieName, run.sessionCookieName.matches("JSESSIONID\\.\\p{XDigit}{8}"));
+        // winstone.jar, once
+        Assert.assertEquals(run.output.toString(), 1, run.filesCreated);
+        Assert.assertTrue(run.toString(), run.bytesWritten > StartupHarness.WINSTONE_PADDING
+                && run.bytesWritten < 2 * StartupHarness.WINSTONE_PADDING);
+        Assert.assertEquals(run.toString(), 0, run.filesLeft);
+    }
+
+    @Test
+    public void shouldNotStartMuchSlowerThanTheJvm() throws Exception {
+        StartupHarness harness = new StartupHarness(tmp.getRoot());
+        long[] launcher = new long[RUNS];
+        long[] jvm = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            // interleaved, so that both see the same load of the machine
+            launcher[i] = harness.run().nanosToLauncherMain;
+            jvm[i] = harness.runWithoutLauncher().nanosToLauncherMain;
+        }
+        double ratio = (double) median(launcher) / median(jvm);
+        Assert.assertTrue(String.format("the launcher took %d ms to get to Winstone against %d ms for the JVM alone,"
+                        + " %.1f times as long, more than %.1f", TimeUnit.NANOSECONDS.toMillis(median(launcher)),
+                        TimeUnit.NANOSECONDS.toMillis(median(jvm)), ratio, MAX_RATIO),
+                ratio <= MAX_RATIO);
+    }
+
+    @Test
+    public void shouldNotWriteToTheTemporaryDirectoryWhenWarm() throws Exception {
+        StartupHarness harness = new StartupHarness(tmp.getRoot());
+        StartupHarness.Run cold = harness.run("--cacheExtractedFiles");
+        assertWithinBudget(cold);
+        Assert.assertTrue(cold.toString(), cold.bytesWritten > StartupHarness.WINSTONE_PADDING);
+        Assert.assertEquals(cold.toString(), 1, cold.filesLeft);
+
+        StartupHarness.Run warm = harness.run("--cacheExtractedFiles");
+        assertWithinBudget(warm);
+        Assert.assertEquals(warm.toString(), 0, warm.bytesWritten);
+        Assert.assertEquals(warm.toString(), 0, warm.filesCreated + warm.filesDeleted + warm.filesLeft);
+    }
+
+    @Test
+    public void shouldNotExtractOrCleanUpWhenPrepared() throws Exception {
+        StartupHarness harness = new StartupHarness(tmp.getRoot());
+        String extractedFilesFolder = "--extractedFilesFolder=" + harness.temporaryDirectory();
+        String output = harness.runWithoutWinstone("--extractOnly", extractedFilesFolder);
+        Assert.assertTrue(output, output.contains("not starting Jenkins"));
+
+        StartupHarness.Run prepared = harness.run(extractedFilesFolder);
+        assertWithinBudget(prepared);
+        Assert.assertEquals(prepared.toString(), 0, prepared.bytesWritten);
+        Assert.assertEquals(prepared.toString(), 0, prepared.filesCreated + prepared.filesDeleted + prepared.filesLeft);
+    }
+
+    @Test
+    public void shouldIgnoreManifestOutsideOfExtractedFilesFolder() throws Exception {
+        StartupHarness harness = new StartupHarness(tmp.getRoot());
+        String output = harness.runWithoutWinstone("--extractOnly", "--extractedFilesFolder=" + tmp.newFolder("extracted"));
+        Assert.assertTrue(output, output.contains("not starting Jenkins"));
+        // as if planted in the temporary directory
+        Files.move(new File(tmp.getRoot(), "extracted/" + ExtractionManifest.FILE_NAME).toPath(),
+                new File(harness.temporaryDirectory(), ExtractionManifest.FILE_NAME).toPath());
+
+        StartupHarness.Run run = harness.run();
+        Assert.assertEquals(run.output.toString(), 1, run.filesCreated);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void assertWithinBudget(StartupHarness.Run run) {
+        Assert.assertTrue(run + ", more than the budget of " + BUDGET_MILLIS + " ms",
+                run.nanosToLauncherMain < TimeUnit.MILLISECONDS.toNanos(BUDGET_MILLIS));
+    }
+}
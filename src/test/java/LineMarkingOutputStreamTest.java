@@ -0,0 +1,33 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.For;
+
+@For(LineMarkingOutputStream.class)
+public class LineMarkingOutputStreamTest {
+
+    @Test
+    public void shouldNumberLinesAcrossStreams() throws Exception {
+        AtomicLong sequence = new AtomicLong();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        try (PrintStream o = new PrintStream(new LineMarkingOutputStream(out, sequence), false, "US-ASCII");
+                PrintStream e = new PrintStream(new LineMarkingOutputStream(err, sequence), false, "US-ASCII")) {
+            o.print("one");
+            e.println("two");
+            o.println(" continued");
+            o.print("three\nfour\n");
+        }
+        String[] outLines = out.toString("US-ASCII").split("\n");
+        String[] errLines = err.toString("US-ASCII").split("\n");
+        Assert.assertEquals(3, outLines.length);
+        Assert.assertEquals(1, errLines.length);
+        Assert.assertTrue(outLines[0], outLines[0].matches("1 \\S+Z one continued"));
+        Assert.assertTrue(errLines[0], errLines[0].matches("2 \\S+Z two"));
+        Assert.assertTrue(outLines[1], outLines[1].matches("3 \\S+Z three"));
+        Assert.assertTrue(outLines[2], outLines[2].matches("4 \\S+Z four"));
+    }
+}
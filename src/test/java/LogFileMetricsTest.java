@@ -0,0 +1,67 @@
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.management.JMX;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(LogFileMetrics.class)
+public class LogFileMetricsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldCountWritesAndReopens() throws Exception {
+        File log = new File(tmp.getRoot(), "jenkins.log");
+        LogFileOptions options = LogFileOptions.parse(new String[] {"--logfile.metrics"});
+        try (LogFileOutputStream out = new LogFileOutputStream(log, options)) {
+            out.write("hello\n".getBytes(StandardCharsets.US_ASCII));
+            out.write("world\n".getBytes(StandardCharsets.US_ASCII));
+            out.reopen();
+            LogFileMetricsMBean metrics = JMX.newMBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    LogFileMetrics.objectName(log), LogFileMetricsMBean.class);
+            Assert.assertEquals(12, metrics.getBytesWritten());
+            Assert.assertEquals(2, metrics.getWrites());
+            Assert.assertEquals(1, metrics.getReopens());
+            Assert.assertEquals(0, metrics.getFailedReopens());
+            Assert.assertEquals(12, metrics.getFileSize());
+            long total = 0;
+            for (long count : metrics.getWriteLatencyHistogram()) {
+                total += count;
+            }
+            Assert.assertEquals(2, total);
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(LogFileMetrics.objectName(log)));
+    }
+
+    @Test
+    public void shouldDumpInPrometheusTextFormat() throws Exception {
+        File prom = new File(tmp.getRoot(), "jenkins.prom");
+        LogFileMetrics metrics = new LogFileMetrics(new File(tmp.getRoot(), "jenkins.log"), () -> 12, null);
+        metrics.recordWrite(12, 1500);
+        metrics.recordReopen();
+        metrics.dump(prom);
+        metrics.close();
+        String text = new String(Files.readAllBytes(prom.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(text, text.contains("jenkins_log_bytes_total{file=\"jenkins.log\"} 12\n"));
+        Assert.assertTrue(text, text.contains("jenkins_log_write_seconds_bucket{file=\"jenkins.log\",le=\"1.0E-6\"} 0\n"));
+        Assert.assertTrue(text, text.contains("jenkins_log_write_seconds_bucket{file=\"jenkins.log\",le=\"2.0E-6\"} 1\n"));
+        Assert.assertTrue(text, text.contains("jenkins_log_write_seconds_bucket{file=\"jenkins.log\",le=\"+Inf\"} 1\n"));
+        Assert.assertTrue(text, text.contains("jenkins_log_reopens_total{file=\"jenkins.log\"} 1\n"));
+        Assert.assertTrue(text, text.contains("jenkins_log_file_size_bytes{file=\"jenkins.log\"} 12\n"));
+    }
+
+    @Test
+    public void shouldBucketLatenciesByPowersOfTwo() {
+        Assert.assertEquals(0, LogFileMetrics.bucket(999));
+        Assert.assertEquals(1, LogFileMetrics.bucket(1000));
+        Assert.assertEquals(2, LogFileMetrics.bucket(3999));
+        Assert.assertEquals(LogFileMetrics.BUCKETS - 1, LogFileMetrics.bucket(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,65 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(LogFileOutputStream.class)
+public class LogFileOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldNotLoseLinesWhileReopening() throws Exception {
+        File dir = tmp.newFolder();
+        File log = new File(dir, "jenkins.log");
+        int threads = 4;
+        int lines = 5000;
+        try (LogFileOutputStream out = new LogFileOutputStream(log)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < lines; i++) {
+                            out.write((id + " " + i + "\n").getBytes(StandardCharsets.US_ASCII));
+                        }
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                thread.start();
+                writers.add(thread);
+            }
+            // as logrotate would, without copytruncate
+            for (int r = 0; r < 20; r++) {
+                Files.move(log.toPath(), new File(dir, "jenkins.log." + r).toPath());
+                out.reopen();
+            }
+            for (Thread thread : writers) {
+                thread.join();
+            }
+        }
+        Set<String> written = new HashSet<>();
+        for (File f : dir.listFiles()) {
+            for (String line : new String(Files.readAllBytes(f.toPath()), StandardCharsets.US_ASCII).split("\n")) {
+                if (line.isEmpty()) {
+                    // reopened before anything was written
+                    continue;
+                }
+                Assert.assertTrue(line, written.add(line));
+            }
+        }
+        Assert.assertEquals(threads * lines, written.size());
+    }
+}
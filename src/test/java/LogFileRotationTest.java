@@ -0,0 +1,105 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(LogFileRotation.class)
+public class LogFileRotationTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldRotateBeforeTheFileGetsTooLarge() throws Exception {
+        File log = new File(tmp.newFolder(), "jenkins.log");
+        LogFileOptions options = LogFileOptions.parse(new String[] {"--logfile.rotateSize=100"});
+        try (LogFileOutputStream out = new LogFileOutputStream(log, options)) {
+            for (int i = 0; i < 4; i++) {
+                // 60 bytes, so each line but the first rotates the file
+                out.write(line(i));
+            }
+        }
+        Assert.assertArrayEquals(line(3), Files.readAllBytes(log.toPath()));
+    }
+
+    @Test
+    public void shouldCompressGenerationsAndKeepTheNewest() throws Exception {
+        File dir = tmp.newFolder();
+        File log = new File(dir, "jenkins.log");
+        // left uncompressed by a previous run
+        Files.write(new File(dir, "jenkins.log.20000101-000000").toPath(), line(0));
+        LogFileRotation rotation = new LogFileRotation(log, 100, 0, 2, true);
+        for (int i = 1; i <= 3; i++) {
+            Files.write(log.toPath(), line(i));
+            rotation.rotate();
+        }
+        rotation.awaitCompression();
+        Assert.assertFalse(log.exists());
+        String[] names = dir.list();
+        // as the generations sort, rotations within the same second get a counter
+        Arrays.sort(names, Comparator.comparing(name -> name.replace(".gz", "")));
+        Assert.assertEquals(Arrays.toString(names), 2, names.length);
+        for (String name : names) {
+            Assert.assertTrue(name, name.endsWith(".gz"));
+        }
+        Assert.assertArrayEquals(line(2), gunzip(new File(dir, names[0])));
+        Assert.assertArrayEquals(line(3), gunzip(new File(dir, names[1])));
+    }
+
+    @Test
+    public void shouldKeepTheNewestOfManyGenerationsWithinASecond() throws Exception {
+        File dir = tmp.newFolder();
+        File log = new File(dir, "jenkins.log");
+        Files.write(new File(dir, "jenkins.log.20000101-000000").toPath(), line(0));
+        for (int i = 1; i <= 11; i++) {
+            Files.write(new File(dir, "jenkins.log.20000101-000000-" + i).toPath(), line(i));
+        }
+        LogFileRotation rotation = new LogFileRotation(log, 100, 0, 3, false);
+        Files.write(log.toPath(), line(12));
+        rotation.rotate();
+        rotation.awaitCompression();
+
+        String[] names = dir.list();
+        Arrays.sort(names);
+        Assert.assertEquals(Arrays.toString(names), 3, names.length);
+        Assert.assertEquals("jenkins.log.20000101-000000-10", names[0]);
+        Assert.assertEquals("jenkins.log.20000101-000000-11", names[1]);
+        Assert.assertFalse(names[2], names[2].startsWith("jenkins.log.2000"));
+    }
+
+    @Test
+    public void shouldNotRotateEmptyFile() {
+        LogFileRotation rotation = new LogFileRotation(new File(tmp.getRoot(), "jenkins.log"), 10, 1, 1, true);
+        Assert.assertFalse(rotation.isDue(0, 0, 100));
+        Assert.assertTrue(rotation.isDue(1, System.currentTimeMillis(), 10));
+        Assert.assertTrue(rotation.isDue(1, 0, 1));
+    }
+
+    private static byte[] line(int i) {
+        return String.format("%059d%n", i).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(MappedLogOutputStream.class)
+public class MappedLogOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldRollSegmentsAndTruncateOnClose() throws Exception {
+        File log = new File(tmp.getRoot(), "jenkins.log");
+        StringBuilder expected = new StringBuilder();
+        try (MappedLogOutputStream out = new MappedLogOutputStream(log, 4096, MappedLogOutputStream.MSYNC_SEGMENT)) {
+            for (int i = 0; i < 1000; i++) {
+                String line = "line " + i + "\n";
+                expected.append(line);
+                out.write(line.getBytes(StandardCharsets.US_ASCII));
+            }
+            Assert.assertEquals(expected.length(), out.size());
+            // preallocated up to the end of the segment
+            Assert.assertEquals(0, log.length() % 4096);
+        }
+        Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(log.toPath()), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void shouldAppendAfterPaddingLeftByCrash() throws Exception {
+        File log = new File(tmp.getRoot(), "jenkins.log");
+        byte[] crashed = new byte[4096];
+        System.arraycopy("before\n".getBytes(StandardCharsets.US_ASCII), 0, crashed, 0, 7);
+        Files.write(log.toPath(), crashed);
+        try (MappedLogOutputStream out = new MappedLogOutputStream(log, 4096, MappedLogOutputStream.MSYNC_NONE)) {
+            Assert.assertEquals(7, out.size());
+            out.write("after\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        Assert.assertEquals("before\nafter\n", new String(Files.readAllBytes(log.toPath()), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void shouldRotateThroughLogFileOutputStream() throws Exception {
+        File log = new File(tmp.newFolder(), "jenkins.log");
+        LogFileOptions options = LogFileOptions.parse(new String[] {"--logfile.segmentSize=4k", "--logfile.msync=interval=10ms", "--logfile.rotateSize=100"});
+        try (LogFileOutputStream out = new LogFileOutputStream(log, options)) {
+            out.write(new byte[] {'a', '\n'});
+            out.reopen();
+            out.write(new byte[] {'b', '\n'});
+        }
+        Assert.assertEquals("a\nb\n", new String(Files.readAllBytes(log.toPath()), StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(NestedJarClassLoader.class)
+public class NestedJarClassLoaderTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldLoadClassesFromJarFile() throws Exception {
+        File jar = createJar();
+        NestedJarClassLoader cl = new NestedJarClassLoader(jar, null);
+        Assert.assertTrue(cl.isRegisteredAsParallelCapable());
+
+        // packages are defined before any class is loaded
+        Assert.assertNotNull(cl.getDefinedPackage("executable"));
+
+        Class<?> c = cl.loadClass("executable.Executable");
+        Assert.assertSame(cl, c.getClassLoader());
+        Assert.assertEquals(jar.toURI().toURL(), c.getProtectionDomain().getCodeSource().getLocation());
+        Assert.assertSame(c, cl.loadClass("executable.Executable"));
+
+        URL resource = cl.getResource("executable/res.txt");
+        Assert.assertEquals("jar:" + jar.toURI().toURL() + "!/executable/res.txt", resource.toString());
+        try (InputStream is = resource.openStream()) {
+            Assert.assertEquals('x', is.read());
+        }
+        Assert.assertNull(cl.getResource("executable/missing.txt"));
+    }
+
+    @Test
+    public void shouldLoadClassesFromBuffer() throws Exception {
+        File jar = createJar();
+        NestedJarClassLoader cl = new NestedJarClassLoader(ByteBuffer.wrap(Files.readAllBytes(jar.toPath())), null, null);
+        Assert.assertSame(cl, cl.loadClass("executable.Executable").getClassLoader());
+        URL resource = cl.getResource("executable/res.txt");
+        Assert.assertEquals("nested-jar", resource.getProtocol());
+        try (InputStream is = resource.openStream()) {
+            Assert.assertEquals('x', is.read());
+        }
+    }
+
+    @Test
+    public void shouldKeepLoadingFromWarRewrittenInPlace() throws Exception {
+        File war = new TestArchive()
+                .addStored("winstone.jar", Files.readAllBytes(createJar().toPath()))
+                .writeTo(tmp.newFile("jenkins.war"));
+        NestedJarClassLoader cl;
+        try (ZipIndex index = ZipIndex.open(war)) {
+            ByteBuffer jar = index.read(index.get("winstone.jar"));
+            Assert.assertFalse("the jar should not be a slice of the mapping", jar.isDirect());
+            cl = new NestedJarClassLoader(jar, war.toURI().toURL(), null);
+        }
+        // as an upgrade does, truncating the file and writing the new one
+        Files.write(war.toPath(), new byte[16]);
+        Assert.assertSame(cl, cl.loadClass("executable.Executable").getClassLoader());
+        try (InputStream is = cl.getResource("executable/res.txt").openStream()) {
+            Assert.assertEquals('x', is.read());
+        }
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void shouldNotFindMissingClasses() throws Exception {
+        new NestedJarClassLoader(createJar(), null).loadClass("executable.Missing");
+    }
+
+    private File createJar() throws IOException {
+        return new TestArchive()
+                .addDirectory("executable/")
+                .addResource("executable/Executable.class")
+                .add("executable/res.txt", "x")
+                .writeTo(tmp.newFile("winstone.jar"));
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For({ResourceExtractor.class, ZipIndex.class})
+public class ResourceExtractorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldExtractStoredAndDeflatedEntries() throws IOException {
+        byte[] stored = randomBytes(3 << 20);
+        byte[] deflated = new byte[5 << 20];
+        for (int i = 0; i < deflated.length; i++) {
+            deflated[i] = (byte) ('a' + i % 7);
+        }
+        File war = tmp.newFile("jenkins.war");
+        try (OutputStream os = new FileOutputStream(war)) {
+            // executable archives may be prepended with a launcher script
+            os.write("#!/bin/sh\nexec java -jar \"$0\"\n".getBytes("US-ASCII"));
+            new TestArchive().addStored("winstone.jar", stored).add("WEB-INF/lib/jenkins-core.jar", deflated).writeTo(os);
+        }
+
+        try (ZipIndex index = ZipIndex.open(war)) {
+            Assert.assertEquals(ZipEntry.STORED, index.get("winstone.jar").method);
+            Assert.assertEquals(ZipEntry.DEFLATED, index.get("WEB-INF/lib/jenkins-core.jar").method);
+
+            File target = tmp.newFile();
+            Assert.assertEquals(stored.length, ResourceExtractor.extract(index, index.get("winstone.jar"), target));
+            Assert.assertArrayEquals(stored, Files.readAllBytes(target.toPath()));
+
+            Assert.assertEquals(deflated.length, ResourceExtractor.extract(index, index.get("WEB-INF/lib/jenkins-core.jar"), target));
+            Assert.assertArrayEquals(deflated, Files.readAllBytes(target.toPath()));
+
+            try (InputStream is = index.openStream(index.get("WEB-INF/lib/jenkins-core.jar"))) {
+                Assert.assertArrayEquals(deflated, readAll(is));
+            }
+            Assert.assertNull(index.get("missing"));
+        }
+    }
+
+    @Test
+    public void shouldCopyStreams() throws IOException {
+        byte[] content = randomBytes(1 << 20);
+        File target = tmp.newFile();
+        Assert.assertEquals(content.length, ResourceExtractor.copy(new ByteArrayInputStream(content), target));
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectNonZipFiles() throws IOException {
+        File file = tmp.newFile();
+        Files.write(file.toPath(), randomBytes(1000));
+        ZipIndex.open(file).close();
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int len;
+        while ((len = is.read(buf)) > 0) {
+            baos.write(buf, 0, len);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For({SharedExtractionStore.class, WebrootSynchronizer.class})
+public class SharedExtractionStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldShareFilesBetweenWebroots() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("winstone.jar", "winstone");
+        entries.put("index.jsp", "index");
+        entries.put("WEB-INF/lib/jenkins-core.jar", "core 1");
+        File war = createWar("jenkins.war", entries);
+        File directory = new File(tmp.getRoot(), "store");
+        File first = new File(tmp.getRoot(), "first");
+        File second = new File(tmp.getRoot(), "second");
+
+        // two instances of the same WAR
+        try (ZipIndex index = ZipIndex.open(war)) {
+            SharedExtractionStore store = SharedExtractionStore.open(directory, index);
+            File winstone = store.get(index, index.get("winstone.jar"));
+            Assert.assertEquals(winstone, store.get(index, index.get("winstone.jar")));
+            if (Files.getFileStore(winstone.toPath()).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                // canWrite() is always true for root
+                Assert.assertFalse(Files.getPosixFilePermissions(winstone.toPath()).contains(PosixFilePermission.OWNER_WRITE));
+            }
+            new WebrootSynchronizer(war, index, first, store).synchronize();
+            new WebrootSynchronizer(war, index, second, store).synchronize();
+            store.release();
+        }
+        for (String name : entries.keySet()) {
+            if (!name.equals("winstone.jar")) {
+                Assert.assertTrue(name, Files.isSameFile(new File(first, name).toPath(), new File(second, name).toPath()));
+                Assert.assertEquals(entries.get(name), new String(Files.readAllBytes(new File(second, name).toPath()), StandardCharsets.UTF_8));
+            }
+        }
+        Assert.assertEquals(3, new File(directory, "objects").list().length);
+
+        // going back to extracted files must not write through the links
+        WebrootSynchronizer own = new WebrootSynchronizer(war, second);
+        own.synchronize();
+        Assert.assertEquals(3, own.written);
+        Assert.assertFalse(Files.isSameFile(new File(first, "index.jsp").toPath(), new File(second, "index.jsp").toPath()));
+        Assert.assertEquals("index", new String(Files.readAllBytes(new File(first, "index.jsp").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldCollectVersionsNobodyUses() throws IOException {
+        File directory = new File(tmp.getRoot(), "store");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("winstone.jar", "winstone");
+        entries.put("index.jsp", "index");
+        File war = createWar("jenkins.war", entries);
+        try (ZipIndex index = ZipIndex.open(war)) {
+            SharedExtractionStore store = SharedExtractionStore.open(directory, index);
+            store.get(index, index.get("winstone.jar"));
+            store.get(index, index.get("index.jsp"));
+
+            // left behind by an instance of an older WAR that exited a while ago
+            File versions = new File(directory, "versions");
+            File objects = new File(directory, "objects");
+            Files.write(new File(objects, "o-01234567-3").toPath(), "old".getBytes(StandardCharsets.US_ASCII));
+            Files.write(new File(versions, "0123456789abcdef").toPath(), Arrays.asList("o-01234567-3", store.get(index, index.get("index.jsp")).getName()), StandardCharsets.US_ASCII);
+            File oldLock = new File(versions, "0123456789abcdef.lock");
+            Files.write(oldLock.toPath(), new byte[0]);
+            Assert.assertTrue(oldLock.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+            // a version that was just used, by an instance being restarted
+            Files.write(new File(versions, "fedcba9876543210").toPath(), Collections.singletonList("o-89abcdef-6"), StandardCharsets.US_ASCII);
+            Files.write(new File(versions, "fedcba9876543210.lock").toPath(), new byte[0]);
+            Files.write(new File(objects, "o-89abcdef-6").toPath(), "recent".getBytes(StandardCharsets.US_ASCII));
+
+            store.collectGarbage();
+            Assert.assertFalse(new File(versions, "0123456789abcdef").exists());
+            Assert.assertFalse(oldLock.exists());
+            Assert.assertFalse(new File(objects, "o-01234567-3").exists());
+            Assert.assertTrue(new File(objects, "o-89abcdef-6").exists());
+            Assert.assertEquals(3, objects.list().length);
+
+            // adding after collecting garbage locks the store again
+            Assert.assertTrue(store.get(index, index.get("winstone.jar")).isFile());
+            store.release();
+        }
+    }
+
+    @Test
+    public void shouldReplaceObjectsThatDoNotMatch() throws IOException {
+        File directory = new File(tmp.getRoot(), "store");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("winstone.jar", "winstone");
+        try (ZipIndex index = ZipIndex.open(createWar("jenkins.war", entries))) {
+            SharedExtractionStore store = SharedExtractionStore.open(directory, index);
+            File winstone = store.get(index, index.get("winstone.jar"));
+            store.release();
+
+            // a jar of the same size planted in its place
+            Files.delete(winstone.toPath());
+            Files.write(winstone.toPath(), "imposter".getBytes(StandardCharsets.US_ASCII));
+            store = SharedExtractionStore.open(directory, index);
+            Assert.assertEquals(winstone, store.get(index, index.get("winstone.jar")));
+            Assert.assertEquals("winstone", new String(Files.readAllBytes(winstone.toPath()), StandardCharsets.US_ASCII));
+            store.release();
+        }
+    }
+
+    @Test
+    public void shouldRefuseStoreOthersCanWriteTo() throws IOException {
+        File directory = new File(tmp.getRoot(), "store");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("winstone.jar", "winstone");
+        try (ZipIndex index = ZipIndex.open(createWar("jenkins.war", entries))) {
+            SharedExtractionStore.open(directory, index).release();
+            File objects = new File(directory, "objects");
+            Assume.assumeTrue(Files.getFileStore(objects.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+            Files.setPosixFilePermissions(objects.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+            try {
+                SharedExtractionStore.open(directory, index);
+                Assert.fail("any user could plant objects");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private File createWar(String name, Map<String, String> entries) throws IOException {
+        return new TestArchive().addAll(entries).writeTo(new File(tmp.getRoot(), name));
+    }
+}
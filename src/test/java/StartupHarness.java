@@ -0,0 +1,345 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs the launcher end to end in a child JVM, from a synthetic executable WAR whose Winstone is a stub,
+ * and measures its startup.
+ *
+ * <p>
+ * The stub {@code winstone.Launcher} has the fields the launcher sets, and waits in {@code main} until
+ * the harness has looked at the temporary directory, so that the files the launcher left for Winstone
+ * are seen. Everything the child writes goes to the directory of the harness: the temporary directory,
+ * {@code JENKINS_HOME} and the webroot. Runs in the same directory share their caches, so the first one
+ * is cold and the next ones are warm.
+ *
+ * <p>
+ * The temporary directory is only looked at before the start, when Winstone is called and after the exit,
+ * so files created and deleted in between are not seen.
+ */
+final class StartupHarness {
+
+    /**
+     * Printed by the stub when the launcher calls it.
+     */
+    private static final String MARKER = "winstone.Launcher.main ";
+
+    private static final String[][] STUB = {
+        {"winstone/Launcher.java",
+            "package winstone;\n"
+            + "public class Launcher {\n"
+            + "    public static String USAGE;\n"
+            + "    public static void main(String[] args) throws Exception {\n"
+            + "        System.out.println(\"" + MARKER + "\" + WinstoneSession.SESSION_COOKIE_NAME);\n"
+            + "        System.out.flush();\n"
+            + "        new java.io.BufferedReader(new java.io.InputStreamReader(System.in)).readLine();\n"
+            + "    }\n"
+            + "}\n"},
+        {"winstone/WinstoneSession.java",
+            "package winstone;\n"
+            + "public class WinstoneSession {\n"
+            + "    public static String SESSION_COOKIE_NAME = \"JSESSIONID\";\n"
+            + "}\n"},
+    };
+
+    /**
+     * Size of the incompressible resource in the stub {@code winstone.jar}, about that of the real one.
+     */
+    static final int WINSTONE_PADDING = 4 * 1024 * 1024;
+
+    private final File directory;
+    private final File war;
+    private final File tmp;
+
+    /**
+     * Builds the WAR in {@code directory}.
+     */
+    StartupHarness(File directory) throws IOException {
+        this.directory = directory;
+        this.war = new File(directory, "jenkins.war");
+        this.tmp = new File(directory, "tmp");
+        Files.createDirectories(tmp.toPath());
+        buildWar();
+    }
+
+    /**
+     * The temporary directory of the child JVM, where the harness looks for the files the launcher writes.
+     */
+    File temporaryDirectory() {
+        return tmp;
+    }
+
+    /**
+     * What a start of the launcher did.
+     */
+    static final class Run {
+        /**
+         * From starting the child JVM to the call of {@code winstone.Launcher.main}.
+         */
+        long nanosToLauncherMain;
+        /**
+         * Bytes of the files created or changed in the temporary directory by then.
+         */
+        long bytesWritten;
+        int filesCreated;
+        int filesDeleted;
+        /**
+         * Files created in the temporary directory that were still there after the launcher exited.
+         */
+        int filesLeft;
+        String sessionCookieName;
+        final List<String> output = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return String.format("%d ms to Launcher.main, %d bytes written, %d files created, %d deleted, %d left",
+                    TimeUnit.NANOSECONDS.toMillis(nanosToLauncherMain), bytesWritten, filesCreated, filesDeleted, filesLeft);
+        }
+    }
+
+    /**
+     * Starts the launcher with the given arguments and waits for it to exit.
+     */
+    Run run(String... args) throws IOException, InterruptedException {
+        return run(launcher(args));
+    }
+
+    /**
+     * Starts the stub Winstone without the launcher, to measure the startup of the JVM alone, and waits for it to exit.
+     */
+    Run runWithoutLauncher() throws IOException, InterruptedException {
+        return run(new ProcessBuilder(java(), "-Djava.io.tmpdir=" + tmp.getAbsolutePath(),
+                "-cp", new File(directory, "stub-classes").getAbsolutePath(), "winstone.Launcher").redirectErrorStream(true));
+    }
+
+    private Run run(ProcessBuilder pb) throws IOException, InterruptedException {
+        Run run = new Run();
+        Map<Path, FileState> before = snapshot();
+        long start = System.nanoTime();
+        Process process = pb.start();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                OutputStream stdin = process.getOutputStream()) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                run.output.add(line);
+                if (line.startsWith(MARKER)) {
+                    run.nanosToLauncherMain = System.nanoTime() - start;
+                    run.sessionCookieName = line.substring(MARKER.length());
+                    break;
+                }
+            }
+            if (run.sessionCookieName == null) {
+                process.waitFor();
+                throw new IOException("The launcher exited with " + process.exitValue() + " before calling Winstone:\n"
+                        + String.join("\n", run.output));
+            }
+
+            Map<Path, FileState> atMain = snapshot();
+            for (Map.Entry<Path, FileState> e : atMain.entrySet()) {
+                FileState previous = before.get(e.getKey());
+                if (previous == null) {
+                    run.filesCreated++;
+                }
+                if (!e.getValue().equals(previous)) {
+                    run.bytesWritten += e.getValue().size;
+                }
+            }
+            run.filesDeleted = (int) before.keySet().stream().filter(p -> !atMain.containsKey(p)).count();
+
+            // let the stub return
+            stdin.write('\n');
+            stdin.flush();
+            while ((line = r.readLine()) != null) {
+                run.output.add(line);
+            }
+        } finally {
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        Map<Path, FileState> after = snapshot();
+        run.filesLeft = (int) after.keySet().stream().filter(p -> !before.containsKey(p)).count();
+        return run;
+    }
+
+    /**
+     * Runs the launcher with arguments that do not get it to start Winstone, like {@code --extractOnly}.
+     *
+     * @return the output of the launcher
+     */
+    String runWithoutWinstone(String... args) throws IOException, InterruptedException {
+        Process process = launcher(args).start();
+        process.getOutputStream().close();
+        String output;
+        try (InputStream is = process.getInputStream()) {
+            output = new String(readAll(is), StandardCharsets.UTF_8);
+        }
+        if (process.waitFor() != 0 || output.contains(MARKER)) {
+            throw new IOException("The launcher exited with " + process.exitValue() + ":\n" + output);
+        }
+        return output;
+    }
+
+    private ProcessBuilder launcher(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.add("-Djava.io.tmpdir=" + tmp.getAbsolutePath());
+        command.add("-jar");
+        command.add(war.getAbsolutePath());
+        command.add("--webroot=" + new File(directory, "webroot").getAbsolutePath());
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder pb = new ProcessBuilder(command).redirectErrorStream(true);
+        pb.environment().put("JENKINS_HOME", new File(directory, "home").getAbsolutePath());
+        return pb;
+    }
+
+    private static String java() {
+        return new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The regular files in the temporary directory.
+     */
+    private Map<Path, FileState> snapshot() throws IOException {
+        Map<Path, FileState> files = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(tmp.toPath())) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        files.put(path, new FileState(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                } catch (IOException e) {
+                    // deleted in the meantime by a background thread of the launcher
+                }
+            }
+        }
+        return files;
+    }
+
+    private static final class FileState {
+        final long size;
+        final long lastModified;
+
+        FileState(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof FileState && ((FileState) o).size == size && ((FileState) o).lastModified == lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    /**
+     * Builds a WAR with the launcher's classes, a stub {@code winstone.jar} and a few webapp files.
+     */
+    private void buildWar() throws IOException {
+        File launcherClasses;
+        try {
+            launcherClasses = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (Exception e) {
+            throw new IOException("Cannot find the classes of the launcher", e);
+        }
+        if (!launcherClasses.isDirectory()) {
+            throw new IOException("The classes of the launcher are not in a directory: " + launcherClasses);
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "Main");
+        manifest.getMainAttributes().putValue("Jenkins-Version", "1.0-startup-harness");
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(war), manifest)) {
+            Path root = launcherClasses.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    putEntry(jos, root.relativize(path).toString().replace(File.separatorChar, '/'), Files.readAllBytes(path));
+                }
+            }
+            putEntry(jos, "winstone.jar", buildWinstoneJar());
+            putEntry(jos, "WEB-INF/web.xml", "<web-app/>\n".getBytes(StandardCharsets.UTF_8));
+            putEntry(jos, "index.html", "<html/>\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private byte[] buildWinstoneJar() throws IOException {
+        File sources = new File(directory, "stub-src");
+        File classes = new File(directory, "stub-classes");
+        List<String> files = new ArrayList<>();
+        for (String[] source : STUB) {
+            File file = new File(sources, source[0]);
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), source[1].getBytes(StandardCharsets.UTF_8));
+            files.add(file.getPath());
+        }
+        Files.createDirectories(classes.toPath());
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Building the stub Winstone needs a JDK");
+        }
+        List<String> compilerArgs = new ArrayList<>(Arrays.asList("-d", classes.getPath()));
+        compilerArgs.addAll(files);
+        if (compiler.run(null, null, null, compilerArgs.toArray(new String[0])) != 0) {
+            throw new IOException("Failed to compile the stub Winstone");
+        }
+
+        ByteArrayOutputStream jar = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(jar)) {
+            for (String[] source : STUB) {
+                String name = source[0].replace(".java", ".class");
+                putEntry(zos, name, Files.readAllBytes(new File(classes, name).toPath()));
+            }
+            byte[] padding = new byte[WINSTONE_PADDING];
+            new Random(42).nextBytes(padding);
+            putEntry(zos, "winstone/padding.bin", padding);
+        }
+        return jar.toByteArray();
+    }
+
+    private static void putEntry(ZipOutputStream zos, String name, byte[] content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content);
+        zos.closeEntry();
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(StartupProfile.class)
+public class StartupProfileTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteEachPhaseOnce() throws IOException {
+        File report = new File(tmp.getRoot(), "profile.json");
+        StartupProfile profile = new StartupProfile();
+        profile.enable(report, "arguments");
+        profile.phase("whoAmI");
+        profile.phase("extractFromJar");
+        StartupProfile.extracted(1000);
+        profile.phase("webroot");
+        profile.finish("2.500");
+
+        String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(json, json.contains("\"jenkinsVersion\": \"2.500\","));
+        for (String phase : new String[] {"arguments", "whoAmI", "extractFromJar", "webroot"}) {
+            Assert.assertEquals(json, 1, count(json, "{\"name\": \"" + phase + "\""));
+        }
+        Assert.assertEquals(json, 4, count(json, "{\"name\": "));
+        Assert.assertEquals(json, 1000, field(json, "extractFromJar", "bytesExtracted"));
+        Assert.assertEquals(json, 0, field(json, "webroot", "bytesExtracted"));
+        Assert.assertTrue(json, json.indexOf("\"arguments\"") < json.indexOf("\"whoAmI\""));
+
+        // the phases add up to the whole startup
+        long sum = 0;
+        Matcher m = Pattern.compile("\"wallTimeNanos\": (\\d+)").matcher(json);
+        Assert.assertTrue(m.find());
+        long total = Long.parseLong(m.group(1));
+        while (m.find()) {
+            sum += Long.parseLong(m.group(1));
+        }
+        Assert.assertTrue(json, sum <= total);
+    }
+
+    @Test
+    public void shouldEscapeStrings() throws IOException {
+        File report = new File(tmp.getRoot(), "profile.json");
+        StartupProfile profile = new StartupProfile();
+        profile.enable(report, "quote \" backslash \\ newline \n tab \t \u00e9");
+        profile.finish("2.500-SNAPSHOT (private-\"x\"\\y)");
+
+        String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(json, json.contains("\"jenkinsVersion\": \"2.500-SNAPSHOT (private-\\\"x\\\"\\\\y)\","));
+        Assert.assertTrue(json, json.contains("{\"name\": \"quote \\\" backslash \\\\ newline \\u000a tab \\u0009 \u00e9\","));
+    }
+
+    @Test
+    public void shouldDoNothingUntilEnabled() {
+        StartupProfile profile = new StartupProfile();
+        profile.phase("whoAmI");
+        profile.finish("2.500");
+        Assert.assertFalse(profile.isEnabled());
+        Assert.assertEquals(0, tmp.getRoot().list().length);
+    }
+
+    @Test
+    public void shouldEmitEventsToRecordingWithoutReport() throws IOException {
+        File dump = new File(tmp.getRoot(), "startup.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jenkins.executableWar.StartupPhase");
+            recording.start();
+            StartupProfile profile = new StartupProfile();
+            profile.enable(null, "arguments");
+            Assert.assertTrue(profile.isEnabled());
+            profile.phase("whoAmI");
+            profile.finish("2.500");
+            recording.stop();
+            recording.dump(dump.toPath());
+        }
+        List<String> phases = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump.toPath())) {
+            phases.add(event.getString("phase"));
+        }
+        // the first phase started before the event could be
+        Assert.assertEquals(Collections.singletonList("whoAmI"), phases);
+        Assert.assertEquals(Collections.singletonList(dump.getName()), Arrays.asList(tmp.getRoot().list()));
+
+        StartupProfile profile = new StartupProfile();
+        profile.enable(null, "arguments");
+        Assert.assertFalse("nothing to record to", profile.isEnabled());
+    }
+
+    private static int count(String s, String part) {
+        int count = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static long field(String json, String phase, String field) {
+        Matcher m = Pattern.compile("\\{\"name\": \"" + phase + "\"[^}]*\"" + field + "\": (\\d+)").matcher(json);
+        Assert.assertTrue(json, m.find());
+        return Long.parseLong(m.group(1));
+    }
+}
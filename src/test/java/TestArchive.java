@@ -0,0 +1,105 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds the archives the tests read, like a {@code jenkins.war} or the {@code winstone.jar} in it.
+ * Entries are written in the order they are added, deflated unless added with {@link #addStored}.
+ */
+final class TestArchive {
+
+    /**
+     * Contents of the entries by name, {@code null} for directories.
+     */
+    private final Map<String, byte[]> entries = new LinkedHashMap<>();
+    private final Set<String> stored = new HashSet<>();
+
+    TestArchive add(String name, byte[] content) {
+        entries.put(name, content);
+        return this;
+    }
+
+    TestArchive add(String name, String content) {
+        return add(name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    TestArchive addAll(Map<String, String> entries) {
+        entries.forEach(this::add);
+        return this;
+    }
+
+    TestArchive addStored(String name, byte[] content) {
+        stored.add(name);
+        return add(name, content);
+    }
+
+    TestArchive addDirectory(String name) {
+        return add(name, (byte[]) null);
+    }
+
+    /**
+     * Adds a resource of the test class path, like a class file, under its own name.
+     */
+    TestArchive addResource(String name) throws IOException {
+        try (InputStream is = TestArchive.class.getResourceAsStream("/" + name)) {
+            if (is == null) {
+                throw new IOException("No resource " + name);
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = is.read(buf)) > 0) {
+                content.write(buf, 0, len);
+            }
+            return add(name, content.toByteArray());
+        }
+    }
+
+    /**
+     * Writes the archive to {@code os}, leaving it open.
+     */
+    void writeTo(OutputStream os) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(os);
+        for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+            ZipEntry entry = new ZipEntry(e.getKey());
+            byte[] content = e.getValue();
+            if (stored.contains(e.getKey())) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(content.length);
+                entry.setCrc(crc.getValue());
+            }
+            zos.putNextEntry(entry);
+            if (content != null) {
+                zos.write(content);
+            }
+            zos.closeEntry();
+        }
+        zos.finish();
+    }
+
+    File writeTo(File file) throws IOException {
+        try (OutputStream os = new FileOutputStream(file)) {
+            writeTo(os);
+        }
+        return file;
+    }
+
+    byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTo(bytes);
+        return bytes.toByteArray();
+    }
+}
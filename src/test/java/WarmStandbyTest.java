@@ -0,0 +1,81 @@
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.For;
+
+@For(WarmStandby.class)
+public class WarmStandbyTest {
+
+    private static final Logger LOGGER = Logger.getLogger(WarmStandbyTest.class.getName());
+
+    @Test
+    public void shouldTakeOverWhenHandedOver() throws Exception {
+        ServerSocket listener = listen();
+        int port = listener.getLocalPort();
+        int controlPort = freePort();
+        WarmStandby standby = new WarmStandby(controlPort, port);
+        Assert.assertTrue(standby.isPortInUse());
+        CompletableFuture<Void> tookOver = CompletableFuture.runAsync(() -> {
+            try {
+                standby.await();
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        try {
+            tookOver.get(300, TimeUnit.MILLISECONDS);
+            Assert.fail("took over while the port is in use");
+        } catch (TimeoutException e) {
+            // expected
+        }
+
+        // the exiting launcher tells the standby before its listener is closed
+        new WarmStandby(controlPort, port).handOver();
+        Thread.sleep(100);
+        Assert.assertFalse(tookOver.isDone());
+        long released = System.nanoTime();
+        listener.close();
+        tookOver.get(30, TimeUnit.SECONDS);
+        // reported rather than asserted, as it depends on the load of the machine
+        LOGGER.log(Level.INFO, "Took over {0} ms after the port was released",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - released));
+        Assert.assertFalse(standby.isPortInUse());
+    }
+
+    @Test
+    public void shouldTakeOverWhenReleased() throws Exception {
+        ServerSocket listener = listen();
+        WarmStandby standby = new WarmStandby(freePort(), listener.getLocalPort());
+        CompletableFuture<Void> tookOver = CompletableFuture.runAsync(() -> {
+            try {
+                standby.await();
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        Thread.sleep(100);
+        // like a launcher that crashed
+        listener.close();
+        tookOver.get(30, TimeUnit.SECONDS);
+    }
+
+    private static ServerSocket listen() throws Exception {
+        ServerSocket listener = new ServerSocket();
+        listener.setReuseAddress(true);
+        listener.bind(new InetSocketAddress(0));
+        return listener;
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.For;
+
+@For(WebrootSynchronizer.class)
+public class WebrootSynchronizerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldOnlyWriteChangedEntries() throws IOException {
+        File webroot = new File(tmp.getRoot(), "war");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("index.jsp", "index");
+        entries.put("WEB-INF/lib/jenkins-core.jar", "core 1");
+        entries.put("WEB-INF/lib/removed.jar", "removed");
+        File war = createWar(entries, 1_000_000_000L);
+
+        WebrootSynchronizer initial = new WebrootSynchronizer(war, webroot);
+        initial.synchronize();
+        Assert.assertEquals(3, initial.written);
+        assertContents(webroot, entries);
+        Assert.assertEquals(war.lastModified(), new File(webroot, WebrootSynchronizer.TIMESTAMP).lastModified());
+
+        entries.put("WEB-INF/lib/jenkins-core.jar", "core 2");
+        entries.remove("WEB-INF/lib/removed.jar");
+        entries.put("WEB-INF/lib/added.jar", "added");
+        war = createWar(entries, 2_000_000_000L);
+
+        WebrootSynchronizer upgrade = new WebrootSynchronizer(war, webroot);
+        upgrade.synchronize();
+        Assert.assertEquals(2, upgrade.written);
+        Assert.assertEquals(1, upgrade.deleted);
+        Assert.assertEquals(1, upgrade.unchanged);
+        assertContents(webroot, entries);
+        Assert.assertFalse(new File(webroot, "WEB-INF/lib/removed.jar").exists());
+
+        WebrootSynchronizer restart = new WebrootSynchronizer(war, webroot);
+        restart.synchronize();
+        Assert.assertEquals(0, restart.written + restart.deleted);
+    }
+
+    @Test
+    public void shouldTellApartWarsOfSameSizeAndTimestamp() throws IOException {
+        File webroot = new File(tmp.getRoot(), "war");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("WEB-INF/lib/jenkins-core.jar", "core 1");
+        File war = createWar(entries, 1_000_000_000L);
+        new WebrootSynchronizer(war, webroot).synchronize();
+
+        // as built with normalized timestamps
+        entries.put("WEB-INF/lib/jenkins-core.jar", "core 2");
+        long length = war.length();
+        war = createWar(entries, 1_000_000_000L);
+        Assert.assertEquals(length, war.length());
+
+        WebrootSynchronizer upgrade = new WebrootSynchronizer(war, webroot);
+        upgrade.synchronize();
+        Assert.assertEquals(1, upgrade.written);
+        assertContents(webroot, entries);
+    }
+
+    @Test
+    public void shouldAdoptWebrootExpandedByWinstone() throws IOException {
+        File webroot = tmp.newFolder("war");
+        Files.write(new File(webroot, "index.jsp").toPath(), "index".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(webroot, "stale.jsp").toPath(), "stale".getBytes(StandardCharsets.UTF_8));
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("index.jsp", "index");
+        entries.put("help.html", "help");
+
+        WebrootSynchronizer sync = new WebrootSynchronizer(createWar(entries, 1_000_000_000L), webroot);
+        sync.synchronize();
+        Assert.assertEquals(1, sync.written);
+        Assert.assertEquals(1, sync.unchanged);
+        Assert.assertEquals(1, sync.deleted);
+        assertContents(webroot, entries);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRejectEntriesOutsideOfWebroot() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("../evil.jsp", "evil");
+        new WebrootSynchronizer(createWar(entries, 1_000_000_000L), new File(tmp.getRoot(), "war")).synchronize();
+    }
+
+    private File createWar(Map<String, String> entries, long lastModified) throws IOException {
+        File war = new TestArchive().addAll(entries).writeTo(new File(tmp.getRoot(), "jenkins.war"));
+        Assert.assertTrue(war.setLastModified(lastModified));
+        return war;
+    }
+
+    private static void assertContents(File webroot, Map<String, String> entries) throws IOException {
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            Assert.assertEquals(e.getValue(), new String(Files.readAllBytes(new File(webroot, e.getKey()).toPath()), StandardCharsets.UTF_8));
+        }
+    }
+}